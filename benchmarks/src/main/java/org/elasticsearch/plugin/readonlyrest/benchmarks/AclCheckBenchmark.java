@@ -0,0 +1,81 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A whole ACL evaluation (no decisions cache), for requests matching the first block, a block half way,
+ * the last block, or no block at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AclCheckBenchmark {
+
+  public enum Target {FIRST, MIDDLE, LAST, NONE}
+
+  @Param({"10", "100", "1000"})
+  public int blocks;
+
+  @Param({"100"})
+  public int users;
+
+  @Param({"1", "10"})
+  public int indexPatterns;
+
+  @Param({"FIRST", "MIDDLE", "LAST", "NONE"})
+  public Target target;
+
+  private ACL acl;
+  private String address;
+  private String index;
+
+  @Setup
+  public void setUp() {
+    acl = new ACL(AclConfigGenerator.generate(blocks, users, indexPatterns));
+    // Blocks 0, 5, 10... match an address of their own network
+    int middle = (blocks / 2) / 5 * 5;
+    switch (target) {
+      case FIRST:
+        address = AclConfigGenerator.addressIn(0);
+        index = "idx_0_0_a";
+        break;
+      case MIDDLE:
+        address = AclConfigGenerator.addressIn(middle);
+        index = "idx_" + middle + "_0_a";
+        break;
+      case LAST:
+        address = AclConfigGenerator.LAST_BLOCK_ADDRESS;
+        index = "any";
+        break;
+      default:
+        address = "192.168.1.1";
+        index = "any";
+    }
+  }
+
+  @Benchmark
+  public BlockExitResult check() {
+    RestRequest request = new BenchRestRequest(RestRequest.Method.GET, "/" + index + "/_search", address, new byte[0]);
+    return acl.check(new RequestContext(null, request, "indices:data/read/search", new SearchRequest(index)));
+  }
+}
@@ -0,0 +1,123 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.Locale;
+
+/**
+ * Generates ACL configurations of any size, mixing the rule kinds found in real ones.
+ * <p>
+ * Block i (0 based) is one of:
+ * <ul>
+ * <li>i % 5 == 0: hosts 10.x.y.0/24 and indices</li>
+ * <li>i % 5 == 1: api_keys key_i and methods GET</li>
+ * <li>i % 5 == 2: auth_key_sha1 of user_i and actions indices:data/read/*</li>
+ * <li>i % 5 == 3: groups g_i and indices</li>
+ * <li>i % 5 == 4: auth_key of user_i and indices</li>
+ * </ul>
+ * A last block allows 127.0.0.1, so a request from there goes through all the others first.
+ * <p>
+ * generateKeyed() makes the configuration of a service with a key per tenant: block i has api_keys key_i,
+ * methods GET (even i) or POST (odd i), actions indices:data/read/* and indices idx_i_*.
+ */
+public class AclConfigGenerator {
+
+  public static final String LAST_BLOCK_ADDRESS = "127.0.0.1";
+
+  public static Settings generate(int blocks, int users, int indexPatterns) {
+    Settings.Builder b = Settings.builder().put("readonlyrest.enable", true);
+    for (int i = 0; i < blocks; i++) {
+      String p = "readonlyrest.access_control_rules." + key(i) + ".";
+      b.put(p + "name", "block_" + i).put(p + "type", "allow");
+      switch (i % 5) {
+        case 0:
+          b.putArray(p + "hosts", network(i));
+          b.putArray(p + "indices", indexPatterns(i, indexPatterns));
+          break;
+        case 1:
+          b.putArray(p + "api_keys", apiKey(i));
+          b.putArray(p + "methods", "GET");
+          break;
+        case 2:
+          b.put(p + "auth_key_sha1", Hashing.sha1().hashString(credentials(i % Math.max(1, users)), Charsets.UTF_8).toString());
+          b.putArray(p + "actions", "indices:data/read/*");
+          break;
+        case 3:
+          b.putArray(p + "groups", group(i));
+          b.putArray(p + "indices", indexPatterns(i, indexPatterns));
+          break;
+        default:
+          b.put(p + "auth_key", credentials(i % Math.max(1, users)));
+          b.putArray(p + "indices", indexPatterns(i, indexPatterns));
+      }
+    }
+    String p = "readonlyrest.access_control_rules." + key(blocks) + ".";
+    b.put(p + "name", "localhost").put(p + "type", "allow").putArray(p + "hosts", LAST_BLOCK_ADDRESS);
+
+    for (int u = 0; u < users; u++) {
+      String up = "readonlyrest.users." + key(u) + ".";
+      b.put(up + "username", "user_" + u)
+          .put(up + "auth_key", credentials(u))
+          .putArray(up + "groups", group(u * 5 + 3));
+    }
+    return b.build();
+  }
+
+  public static Settings generateKeyed(int blocks) {
+    Settings.Builder b = Settings.builder().put("readonlyrest.enable", true);
+    for (int i = 0; i < blocks; i++) {
+      String p = "readonlyrest.access_control_rules." + key(i) + ".";
+      b.put(p + "name", "block_" + i).put(p + "type", "allow")
+          .putArray(p + "api_keys", apiKey(i))
+          .putArray(p + "methods", i % 2 == 0 ? "GET" : "POST")
+          .putArray(p + "actions", "indices:data/read/*")
+          .putArray(p + "indices", indexPatterns(i, 1));
+    }
+    String p = "readonlyrest.access_control_rules." + key(blocks) + ".";
+    b.put(p + "name", "localhost").put(p + "type", "allow").putArray(p + "hosts", LAST_BLOCK_ADDRESS);
+    return b.build();
+  }
+
+  // The ACL sorts the blocks by key as strings
+  private static String key(int i) {
+    return String.format(Locale.ROOT, "%08d", i);
+  }
+
+  /**
+   * @return a network only block i allows
+   */
+  public static String network(int i) {
+    return "10." + ((i / 256) % 256) + "." + (i % 256) + ".0/24";
+  }
+
+  public static String addressIn(int i) {
+    return "10." + ((i / 256) % 256) + "." + (i % 256) + ".7";
+  }
+
+  public static String apiKey(int i) {
+    return "key_" + i;
+  }
+
+  public static String credentials(int user) {
+    return "user_" + user + ":pwd_" + user;
+  }
+
+  public static String basicAuthHeader(int user) {
+    return "Basic " + Base64.encodeBytes(credentials(user).getBytes(Charsets.UTF_8));
+  }
+
+  public static String group(int i) {
+    return "g_" + i;
+  }
+
+  public static String[] indexPatterns(int block, int count) {
+    String[] patterns = new String[count];
+    for (int j = 0; j < count; j++) {
+      patterns[j] = "idx_" + block + "_" + j + "_*";
+    }
+    return patterns;
+  }
+}
@@ -0,0 +1,48 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building an ACL from its settings, as done at startup and on every reload (here with nothing to carry over).
+ * The time of each phase is in the log of every ACL built, see ACL.getBuildNanos().
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AclStartupBenchmark {
+
+  @Param({"1000", "10000", "50000"})
+  public int blocks;
+
+  @Param({"1000"})
+  public int users;
+
+  private Settings settings;
+
+  @Setup
+  public void setUp() {
+    settings = AclConfigGenerator.generate(blocks, users, 1);
+  }
+
+  @Benchmark
+  public ACL build() {
+    return new ACL(settings);
+  }
+}
@@ -0,0 +1,84 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeyRule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeySha1Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.GroupsRule;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The authentication rules for the last configured user, with a fresh request context every time
+ * (so the Authorization header is parsed again) and a warm authentication cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthRulesBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  public int users;
+
+  private AuthKeyRule authKey;
+  private AuthKeySha1Rule authKeySha1;
+  private GroupsRule groups;
+  private String authorization;
+
+  @Setup
+  public void setUp() throws RuleNotConfiguredException {
+    int user = users - 1;
+    AuthCache authCache = new AuthCache(1000, 60000);
+    Settings config = AclConfigGenerator.generate(0, users, 0);
+    UserRegistry registry = new UserRegistry(new ArrayList<>(config.getGroups("readonlyrest.users").values()), authCache);
+
+    authKey = new AuthKeyRule(Settings.builder().put("auth_key", AclConfigGenerator.credentials(user)).build(), authCache);
+    authKeySha1 = new AuthKeySha1Rule(Settings.builder().put("auth_key_sha1",
+        Hashing.sha1().hashString(AclConfigGenerator.credentials(user), Charsets.UTF_8).toString()).build(), authCache);
+    groups = new GroupsRule(Settings.builder().putArray("groups", AclConfigGenerator.group(user * 5 + 3)).build(), registry);
+    authorization = AclConfigGenerator.basicAuthHeader(user);
+  }
+
+  private RequestContext context() {
+    RestRequest request = new BenchRestRequest(RestRequest.Method.GET, "/", "127.0.0.1", new byte[0])
+        .header("Authorization", authorization);
+    return new RequestContext(null, request, null, null);
+  }
+
+  @Benchmark
+  public RuleExitResult authKey() {
+    return authKey.match(context());
+  }
+
+  @Benchmark
+  public RuleExitResult authKeySha1() {
+    return authKeySha1.match(context());
+  }
+
+  @Benchmark
+  public RuleExitResult groups() {
+    return groups.match(context());
+  }
+}
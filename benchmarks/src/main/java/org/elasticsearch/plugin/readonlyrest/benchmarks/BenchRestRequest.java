@@ -0,0 +1,96 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.RestRequest;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Plain RestRequest: a mock would dominate the measurements.
+ */
+public class BenchRestRequest extends RestRequest {
+  private final Method method;
+  private final String uri;
+  private final SocketAddress remoteAddress;
+  private final Map<String, String> headers = new HashMap<>();
+  private final Map<String, String> params = new HashMap<>();
+  private final BytesReference content;
+
+  public BenchRestRequest(Method method, String uri, String remoteAddress, byte[] content) {
+    this.method = method;
+    this.uri = uri;
+    this.remoteAddress = new InetSocketAddress(remoteAddress, 9200);
+    this.content = new BytesArray(content);
+  }
+
+  public BenchRestRequest header(String name, String value) {
+    headers.put(name, value);
+    return this;
+  }
+
+  @Override
+  public Method method() {
+    return method;
+  }
+
+  @Override
+  public String uri() {
+    return uri;
+  }
+
+  @Override
+  public String rawPath() {
+    int q = uri.indexOf('?');
+    return q < 0 ? uri : uri.substring(0, q);
+  }
+
+  @Override
+  public boolean hasContent() {
+    return content.length() > 0;
+  }
+
+  @Override
+  public BytesReference content() {
+    return content;
+  }
+
+  @Override
+  public String header(String name) {
+    return headers.get(name);
+  }
+
+  @Override
+  public Iterable<Map.Entry<String, String>> headers() {
+    return headers.entrySet();
+  }
+
+  @Override
+  public boolean hasParam(String key) {
+    return params.containsKey(key);
+  }
+
+  @Override
+  public String param(String key) {
+    return params.get(key);
+  }
+
+  @Override
+  public String param(String key, String defaultValue) {
+    String v = params.get(key);
+    return v == null ? defaultValue : v;
+  }
+
+  @Override
+  public Map<String, String> params() {
+    return params;
+  }
+
+  @Override
+  public SocketAddress getRemoteAddress() {
+    return remoteAddress;
+  }
+}
@@ -0,0 +1,96 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ACL.check, which only checks the blocks whose actions, methods and api_keys rules may accept the request,
+ * against a walk of all the blocks in order (the dispatch before the index).
+ * <p>
+ * The request has the key of the last keyed block and is a GET search: on the KEYED configuration (a block per
+ * key) it is a candidate of one block only, on the MIXED one of the blocks without api_keys too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BlockDispatchBenchmark {
+
+  public enum Shape {KEYED, MIXED}
+
+  @Param({"1000", "5000"})
+  public int blocks;
+
+  @Param({"KEYED", "MIXED"})
+  public Shape shape;
+
+  private ACL acl;
+  private Block[] allBlocks;
+  private String apiKey;
+  private String index;
+
+  @Setup
+  public void setUp() {
+    Settings settings;
+    int target;
+    if (shape == Shape.KEYED) {
+      settings = AclConfigGenerator.generateKeyed(blocks);
+      // The last block allowing GET
+      target = (blocks - 1) / 2 * 2;
+    }
+    else {
+      settings = AclConfigGenerator.generate(blocks, 100, 1);
+      // The last block with api_keys (and methods GET)
+      target = (blocks - 2) / 5 * 5 + 1;
+    }
+    acl = new ACL(settings);
+    List<Block> list = acl.getBlocks();
+    allBlocks = list.toArray(new Block[list.size()]);
+    apiKey = AclConfigGenerator.apiKey(target);
+    index = "idx_" + target + "_0_a";
+  }
+
+  private RequestContext request() {
+    RestRequest request = new BenchRestRequest(RestRequest.Method.GET, "/" + index + "/_search", "192.168.1.1", new byte[0])
+        .header("X-Api-Key", apiKey);
+    return new RequestContext(null, request, "indices:data/read/search", new SearchRequest(index));
+  }
+
+  @Benchmark
+  public BlockExitResult indexed() {
+    return acl.check(request());
+  }
+
+  @Benchmark
+  public BlockExitResult linear() {
+    RequestContext rc = request();
+    for (Block b : allBlocks) {
+      BlockExitResult result = b.check(rc);
+      if (result.isMatch()) {
+        return result;
+      }
+    }
+    return BlockExitResult.NO_MATCH;
+  }
+}
@@ -0,0 +1,80 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import com.google.common.base.Ticker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.CidrTrie;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.HostsRule;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The hosts rule against many networks (IPMask used to scan them, the rule now walks a CidrTrie).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostsRuleBenchmark {
+
+  @Param({"10", "1000", "10000"})
+  public int networks;
+
+  private HostsRule rule;
+  private CidrTrie trie;
+  private String hit;
+  private byte[] hitBytes;
+
+  @Setup
+  public void setUp() throws RuleNotConfiguredException, UnknownHostException {
+    String[] hosts = new String[networks];
+    trie = new CidrTrie();
+    for (int i = 0; i < networks; i++) {
+      hosts[i] = AclConfigGenerator.network(i);
+      trie.add(hosts[i]);
+    }
+    DnsCache noDns = new DnsCache(DnsCache.SYSTEM_RESOLVER, Ticker.systemTicker(), 60000, 10000, 0);
+    rule = new HostsRule(Settings.builder().putArray("hosts", hosts).build(), noDns);
+    hit = AclConfigGenerator.addressIn(networks - 1);
+    hitBytes = InetAddress.getByName(hit).getAddress();
+  }
+
+  private RuleExitResult match(String address) {
+    RestRequest request = new BenchRestRequest(RestRequest.Method.GET, "/", address, new byte[0]);
+    return rule.match(new RequestContext(null, request, null, null));
+  }
+
+  @Benchmark
+  public RuleExitResult ruleHit() {
+    return match(hit);
+  }
+
+  @Benchmark
+  public RuleExitResult ruleMiss() {
+    return match("192.168.1.1");
+  }
+
+  @Benchmark
+  public boolean trieContains() {
+    return trie.contains(hitBytes);
+  }
+}
@@ -0,0 +1,81 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshot;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.IndicesRule;
+import org.elasticsearch.rest.RestRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The indices rule with wildcard requests (expanded against the cluster and narrowed to the allowed
+ * indices) and with concrete ones.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndicesRuleBenchmark {
+
+  @Param({"100", "10000"})
+  public int indices;
+
+  @Param({"1", "10", "100"})
+  public int patterns;
+
+  private IndicesRule rule;
+  private IndicesSnapshot snapshot;
+
+  @Setup
+  public void setUp() throws RuleNotConfiguredException {
+    MetaData.Builder md = MetaData.builder().version(1);
+    for (int i = 0; i < indices; i++) {
+      md.put(IndexMetaData.builder("logs-" + (i % 100) + "-" + i)
+          .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+          .numberOfShards(1)
+          .numberOfReplicas(0));
+    }
+    snapshot = IndicesSnapshot.fromMetaData(md.build());
+
+    String[] allowed = new String[patterns];
+    for (int j = 0; j < patterns; j++) {
+      allowed[j] = "logs-" + j + "-*";
+    }
+    rule = new IndicesRule(Settings.builder().putArray("indices", allowed).build());
+  }
+
+  private RuleExitResult match(String index) {
+    RestRequest request = new BenchRestRequest(RestRequest.Method.GET, "/" + index + "/_search", "127.0.0.1", new byte[0]);
+    return rule.match(new RequestContext(null, request, "indices:data/read/search", new SearchRequest(index), snapshot));
+  }
+
+  @Benchmark
+  public RuleExitResult wildcardExpansion() {
+    return match("logs-*");
+  }
+
+  @Benchmark
+  public RuleExitResult concreteIndex() {
+    return match("logs-0-0");
+  }
+}
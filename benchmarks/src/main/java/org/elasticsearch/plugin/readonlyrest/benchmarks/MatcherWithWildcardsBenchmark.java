@@ -0,0 +1,69 @@
+package org.elasticsearch.plugin.readonlyrest.benchmarks;
+
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.MatcherWithWildcards;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatcherWithWildcardsBenchmark {
+
+  @Param({"10", "100", "1000"})
+  public int patterns;
+
+  private MatcherWithWildcards matcher;
+  private String lastPatternHit;
+  private Set<String> haystack;
+
+  @Setup
+  public void setUp() {
+    Set<String> p = new HashSet<>();
+    for (int i = 0; i < patterns; i++) {
+      p.add("logs-" + i + "-*");
+      p.add("exact_" + i);
+    }
+    matcher = new MatcherWithWildcards(p);
+    lastPatternHit = "logs-" + (patterns - 1) + "-2017.01.01";
+    haystack = new HashSet<>();
+    for (int i = 0; i < 1000; i++) {
+      haystack.add("logs-" + (i % (2 * patterns)) + "-" + i);
+    }
+  }
+
+  @Benchmark
+  public boolean matchWildcard() {
+    return matcher.match(lastPatternHit);
+  }
+
+  @Benchmark
+  public boolean matchExact() {
+    return matcher.match("exact_0");
+  }
+
+  @Benchmark
+  public boolean matchMiss() {
+    return matcher.match("metrics-2017.01.01");
+  }
+
+  @Benchmark
+  public Set<String> filter1000() {
+    return matcher.filter(haystack);
+  }
+}
@@ -0,0 +1,111 @@
+package org.elasticsearch.plugin.readonlyrest;
+
+import org.elasticsearch.common.inject.Provider;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.http.netty.NettyHttpRequest;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.DefaultHttpResponse;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.ANSI_RED;
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.ANSI_RESET;
+
+/**
+ * Answers 413 to the HTTP requests whose body is longer than any block of the ACL would allow, before the body
+ * gets aggregated in memory. The length is taken from the Content-Length header, or counted chunk by chunk.
+ * <p>
+ * The limit of a request is the highest max_body_length among the allow blocks its request line and headers
+ * may match, so this never rejects a request the ACL would have allowed. The rules that would be too costly
+ * to run on the network threads (see Block.bodyLengthLimit) are taken as matching.
+ * One instance per connection: it sits in the pipeline right before the chunk aggregator.
+ */
+public class BodyLengthLimitHandler extends SimpleChannelUpstreamHandler {
+  private final ESLogger logger = Loggers.getLogger(getClass());
+
+  private final Provider<ACL> acl;
+  private final BodyLengthLimitStats stats;
+
+  // State of the request being received on this connection
+  private long limit = Long.MAX_VALUE;
+  private long received = 0;
+  private boolean rejected = false;
+
+  /**
+   * @param acl the ACL in use, looked up for each request
+   */
+  public BodyLengthLimitHandler(Provider<ACL> acl, BodyLengthLimitStats stats) {
+    this.acl = acl;
+    this.stats = stats;
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    Object msg = e.getMessage();
+    if (msg instanceof HttpRequest) {
+      HttpRequest request = (HttpRequest) msg;
+      rejected = false;
+      limit = limitFor(request, ctx.getChannel());
+      received = request.getContent().readableBytes();
+      long length = Math.max(HttpHeaders.getContentLength(request, 0), received);
+      if (length > limit) {
+        reject(ctx, request, length);
+        return;
+      }
+    }
+    else if (msg instanceof HttpChunk) {
+      if (rejected) {
+        // The rest of a rejected body, the connection is closing anyway
+        return;
+      }
+      received += ((HttpChunk) msg).getContent().readableBytes();
+      if (received > limit) {
+        reject(ctx, null, received);
+        return;
+      }
+    }
+    ctx.sendUpstream(e);
+  }
+
+  private long limitFor(HttpRequest request, Channel channel) {
+    ACL acl = this.acl.get();
+    if (!acl.isBodyLengthLimited()) {
+      return Long.MAX_VALUE;
+    }
+    try {
+      return acl.bodyLengthLimit(new RequestContext(null, new NettyHttpRequest(request, channel), null, null));
+    } catch (RuntimeException e) {
+      // Can't tell: the ACL will check the length once the body is received
+      logger.debug("could not find the body length limit of " + request.getMethod() + " " + request.getUri(), e);
+      return Long.MAX_VALUE;
+    }
+  }
+
+  private void reject(ChannelHandlerContext ctx, HttpRequest request, long length) {
+    rejected = true;
+    stats.onRejected(length);
+    if (request != null) {
+      logger.info(ANSI_RED + "body too long (" + length + " > " + limit + " bytes): " +
+          request.getMethod() + " " + request.getUri() + " from " + ctx.getChannel().getRemoteAddress() + ANSI_RESET);
+    }
+    else {
+      logger.info(ANSI_RED + "chunked body too long (" + length + " > " + limit + " bytes) from " +
+          ctx.getChannel().getRemoteAddress() + ANSI_RESET);
+    }
+    HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE);
+    response.headers().set(HttpHeaders.Names.CONTENT_LENGTH, 0);
+    response.headers().set(HttpHeaders.Names.CONNECTION, HttpHeaders.Values.CLOSE);
+    ctx.getChannel().write(response).addListener(ChannelFutureListener.CLOSE);
+  }
+}
@@ -0,0 +1,34 @@
+package org.elasticsearch.plugin.readonlyrest;
+
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.metrics.CounterMetric;
+
+/**
+ * Counts the HTTP requests rejected by the BodyLengthLimitHandler, and the body bytes they did not get to buffer.
+ */
+@Singleton
+public class BodyLengthLimitStats {
+  private final CounterMetric rejectedRequests = new CounterMetric();
+  private final CounterMetric rejectedBytes = new CounterMetric();
+
+  public void onRejected(long bytes) {
+    rejectedRequests.inc();
+    rejectedBytes.inc(bytes);
+  }
+
+  public long getRejectedRequests() {
+    return rejectedRequests.count();
+  }
+
+  /**
+   * @return the sum of the body lengths of the rejected requests, as declared or as received until rejected
+   */
+  public long getRejectedBytes() {
+    return rejectedBytes.count();
+  }
+
+  @Override
+  public String toString() {
+    return "{ rejected_requests: " + getRejectedRequests() + ", rejected_bytes: " + getRejectedBytes() + " }";
+  }
+}
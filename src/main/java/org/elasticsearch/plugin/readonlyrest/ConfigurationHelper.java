@@ -3,6 +3,9 @@ package org.elasticsearch.plugin.readonlyrest;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 
 /**
  * ConfigurationHelper
@@ -23,6 +26,10 @@ public class ConfigurationHelper {
   public static final String ANSI_CYAN = "\u001B[36m";
   public static final String ANSI_WHITE = "\u001B[37m";
 
+  // Defaults of the user variables resolution cache, also used by the ACLs built without a configuration
+  public static final int DEFAULT_USER_VARIABLES_CACHE_MAX_SIZE = 10000;
+  public static final TimeValue DEFAULT_USER_VARIABLES_CACHE_TTL = TimeValue.timeValueMinutes(10);
+
   public final boolean enabled;
   public final String verbosity;
   public final String forbiddenResponse;
@@ -30,6 +37,30 @@ public class ConfigurationHelper {
   public final String sslKeyStoreFile;
   public final String sslKeyPassword;
   public final String sslKeyStorePassword;
+  public final boolean cacheEnabled;
+  public final int cacheMaxSize;
+  public final TimeValue cacheTtl;
+  public final TimeValue authCacheTtl;
+  public final int authCacheMaxSize;
+  public final TimeValue dnsTtl;
+  public final TimeValue dnsNegativeTtl;
+  public final TimeValue dnsRefreshInterval;
+  public final boolean auditEnabled;
+  public final int auditBufferSize;
+  public final int auditBatchSize;
+  public final TimeValue auditFlushInterval;
+  public final String auditFile;
+  public final ByteSizeValue auditFileMaxSize;
+  public final int auditFileMaxFiles;
+  public final String auditIndex;
+  public final String reloadFile;
+  public final boolean reloadWatch;
+  public final boolean aclIndexEnabled;
+  public final String aclIndex;
+  public final TimeValue aclIndexPollInterval;
+  public final int userVariablesCacheMaxSize;
+  public final boolean preCheckEnabled;
+  public final TimeValue userVariablesCacheTtl;
 
   @Inject
   public ConfigurationHelper(Settings settings) {
@@ -45,6 +76,45 @@ public class ConfigurationHelper {
     sslKeyStorePassword = s.get("ssl.keystore_pass");
     sslKeyPassword = s.get("ssl.key_pass", sslKeyStorePassword); // fallback
 
+    // -- ACL decisions cache
+    cacheEnabled = s.getAsBoolean("cache.enable", false);
+    cacheMaxSize = s.getAsInt("cache.max_size", 10000);
+    cacheTtl = s.getAsTime("cache.ttl", TimeValue.timeValueSeconds(10));
+
+    // -- Authentication cache
+    authCacheMaxSize = s.getAsInt("auth_cache.max_size", 1000);
+    authCacheTtl = s.getAsTime("auth_cache.ttl", TimeValue.timeValueSeconds(60));
+
+    // -- Host names resolution
+    dnsTtl = s.getAsTime("dns.ttl", TimeValue.timeValueSeconds(60));
+    dnsNegativeTtl = s.getAsTime("dns.negative_ttl", TimeValue.timeValueSeconds(10));
+    dnsRefreshInterval = s.getAsTime("dns.refresh_interval", TimeValue.timeValueSeconds(5));
+
+    // -- Audit log
+    auditEnabled = s.getAsBoolean("audit.enable", false);
+    auditBufferSize = s.getAsInt("audit.buffer_size", 8192);
+    auditBatchSize = s.getAsInt("audit.batch_size", 512);
+    auditFlushInterval = s.getAsTime("audit.flush_interval", TimeValue.timeValueSeconds(1));
+    auditFile = s.get("audit.file", "readonlyrest_audit.log");
+    auditFileMaxSize = s.getAsBytesSize("audit.file_max_size", new ByteSizeValue(100, ByteSizeUnit.MB));
+    auditFileMaxFiles = s.getAsInt("audit.file_max_files", 5);
+    auditIndex = s.get("audit.index");
+
+    // -- ACL hot reload
+    reloadFile = s.get("reload.file", "elasticsearch.yml");
+    reloadWatch = s.getAsBoolean("reload.watch", false);
+
+    // -- ACL distributed through an index
+    aclIndexEnabled = s.getAsBoolean("acl_index.enable", false);
+    aclIndex = s.get("acl_index.name", ".readonlyrest");
+    aclIndexPollInterval = s.getAsTime("acl_index.poll_interval", TimeValue.timeValueSeconds(5));
+
+    // -- ACL evaluation on the request line and the headers, in the REST filter
+    preCheckEnabled = s.getAsBoolean("pre_check.enable", true);
+
+    // -- Rule values resolved per user (@{user})
+    userVariablesCacheMaxSize = s.getAsInt("user_variables.cache_max_size", DEFAULT_USER_VARIABLES_CACHE_MAX_SIZE);
+    userVariablesCacheTtl = s.getAsTime("user_variables.cache_ttl", DEFAULT_USER_VARIABLES_CACHE_TTL);
   }
 
   public static boolean isNullOrEmpty(String s) {
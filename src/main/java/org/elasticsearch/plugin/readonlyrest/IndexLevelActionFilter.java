@@ -6,13 +6,19 @@ import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.action.support.ActionFilter;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
-import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexProtection;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.acl.DecisionCache;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshotService;
+import org.elasticsearch.plugin.readonlyrest.acl.PreDecision;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
 import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
@@ -27,16 +33,24 @@ import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
  */
 @Singleton
 public class IndexLevelActionFilter extends ActionFilter.Simple {
-  private IndicesService indicesService;
-  private ACL acl;
+  private IndicesSnapshotService indicesSnapshotService;
+  private ACLService aclService;
+  private DecisionCache decisionCache;
+  private AuditLog auditLog;
+  // Null if the ACL is not read from an index
+  private ACLIndexProtection aclIndexProtection;
 
   private ConfigurationHelper conf;
 
   @Inject
-  public IndexLevelActionFilter(Settings settings, ACL acl, ConfigurationHelper conf, IndicesService indicesService) {
+  public IndexLevelActionFilter(Settings settings, ACLService aclService, ConfigurationHelper conf, IndicesSnapshotService indicesSnapshotService, DecisionCache decisionCache,
+                                AuditLog auditLog) {
     super(settings);
     this.conf = conf;
-    this.indicesService = indicesService;
+    this.auditLog = auditLog;
+    this.indicesSnapshotService = indicesSnapshotService;
+    this.decisionCache = decisionCache;
+    this.aclIndexProtection = conf.aclIndexEnabled ? new ACLIndexProtection(conf.aclIndex) : null;
 
     logger.info("Readonly REST plugin was loaded...");
 
@@ -46,7 +60,7 @@ public class IndexLevelActionFilter extends ActionFilter.Simple {
     }
 
     logger.info("Readonly REST plugin is enabled. Yay, ponies!");
-    this.acl = acl;
+    this.aclService = aclService;
   }
 
   @Override
@@ -82,18 +96,41 @@ public class IndexLevelActionFilter extends ActionFilter.Simple {
         throw new SecurityPermissionException("Problems analyzing the request object. Have you checked the security permissions?", null);
     }
 
-    RequestContext rc = new RequestContext(channel, req, action, actionRequest, indicesService);
-    BlockExitResult exitResult = acl.check(rc);
+    // The same ACL all along, even if a reload swaps it meanwhile
+    ACL acl = aclService.get();
+    RequestContext rc = new RequestContext(channel, req, action, actionRequest, indicesSnapshotService.getSnapshot());
+    // The REST filter may have told the outcome from the request line and the headers already
+    PreDecision pre = actionRequest.getFromContext(PreDecision.CONTEXT_KEY);
+    BlockExitResult exitResult = pre == null ? null : pre.getResult(acl);
+    if (exitResult == null) {
+      exitResult = decisionCache.check(acl, rc);
+    }
+    auditLog.log(rc, exitResult, acl.getAuthCache());
 
     // The request is allowed to go through
     if (exitResult.isMatch() && exitResult.getBlock().getPolicy() == Block.Policy.ALLOW) {
-      return true;
+      if (aclIndexProtection == null || aclIndexProtection.allows(rc, exitResult.getBlock())) {
+        return true;
+      }
+      logger.info("forbidden request: " + rc + " Reason: writing to the ACL index " + aclIndexProtection.getIndex() +
+          " takes a block naming it, not " + exitResult.getBlock());
+      sendForbidden(channel, acl, conf.forbiddenResponse, logger);
+      return false;
     }
 
     // Barring
-    logger.info("forbidden request: " + rc + " Reason: " + exitResult.getBlock() + " (" + exitResult.getBlock() + ")");
-    String reason = conf.forbiddenResponse;
+    // The audit log has the details already
+    if (!auditLog.isEnabled() || logger.isDebugEnabled()) {
+      logger.info("forbidden request: " + rc + " Reason: " + exitResult.getBlock() + " (" + exitResult.getBlock() + ")");
+    }
+    sendForbidden(channel, acl, conf.forbiddenResponse, logger);
+    return false;
+  }
 
+  /**
+   * The response to a request the ACL forbids: a login prompt if some block asks for credentials.
+   */
+  static void sendForbidden(RestChannel channel, ACL acl, String reason, ESLogger logger) {
     BytesRestResponse resp;
 
     try {
@@ -112,7 +149,6 @@ public class IndexLevelActionFilter extends ActionFilter.Simple {
     } catch (IOException e) {
       logger.error("Construct forbidden reason failed", e);
     }
-    return false;
   }
 
   @Override
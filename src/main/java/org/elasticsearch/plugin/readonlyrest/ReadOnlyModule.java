@@ -1,11 +1,32 @@
 package org.elasticsearch.plugin.readonlyrest;
 
 import org.elasticsearch.common.inject.AbstractModule;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexWatcher;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.acl.DecisionCache;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshotService;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
 import org.elasticsearch.plugin.readonlyrest.authc.DefaultAuthenticationFailureHandler;
+import org.elasticsearch.plugin.readonlyrest.authc.RestCredentials;
 
+/**
+ * The services shared by the filters, the transport and the actions of the plugin. They are bound here because
+ * the injector does not scope the just in time bindings: each injection point would get its own instance.
+ */
 public class ReadOnlyModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(DefaultAuthenticationFailureHandler.class).asEagerSingleton();
+        bind(ConfigurationHelper.class).asEagerSingleton();
+        bind(SSLEngineProvider.class).asEagerSingleton();
+        bind(BodyLengthLimitStats.class).asEagerSingleton();
+        bind(RestCredentials.class).asEagerSingleton();
+        bind(DnsCache.class).asEagerSingleton();
+        bind(DecisionCache.class).asEagerSingleton();
+        bind(IndicesSnapshotService.class).asEagerSingleton();
+        bind(AuditLog.class).asEagerSingleton();
+        bind(ACLService.class).asEagerSingleton();
+        bind(ACLIndexWatcher.class).asEagerSingleton();
     }
 }
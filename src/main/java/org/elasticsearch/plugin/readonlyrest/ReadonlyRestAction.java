@@ -3,15 +3,17 @@ package org.elasticsearch.plugin.readonlyrest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
-import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.acl.PreDecision;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeyRule;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
 import org.elasticsearch.plugin.readonlyrest.authc.DefaultAuthenticationFailureHandler;
-import org.elasticsearch.plugin.readonlyrest.authc.ReadOnlySettingParser;
+import org.elasticsearch.plugin.readonlyrest.authc.RestCredentials;
 import org.elasticsearch.rest.*;
 
 /**
@@ -35,16 +37,38 @@ import org.elasticsearch.rest.*;
 
 public class ReadonlyRestAction extends BaseRestHandler {
     @Inject
-    public ReadonlyRestAction(final Settings settings, Client client, RestController controller, final DefaultAuthenticationFailureHandler authcHandler, final IndicesService indicesService) {
+    public ReadonlyRestAction(final Settings settings, Client client, RestController controller, final DefaultAuthenticationFailureHandler authcHandler, final RestCredentials credentials,
+                              final ConfigurationHelper conf, final ACLService aclService, final AuditLog auditLog) {
         super(settings, controller, client);
 
         controller.registerFilter(new RestFilter() {
 
             @Override
             public void process(RestRequest request, RestChannel channel, RestFilterChain filterChain) throws Exception {
-                if (!new ReadOnlySettingParser(settings).checkUserAuth(request)) {
+                // Checked in place: the credentials are only parsed if some rule needs them
+                if (!credentials.get().matchesHeader(request.header("Authorization"))) {
                     throw authcHandler.unsuccessfulAuthentication(request);
                 }
+
+                if (conf.enabled && conf.preCheckEnabled) {
+                    // Phase one: the request line and the headers may be enough to tell the outcome
+                    ACL acl = aclService.get();
+                    RequestContext rc = new RequestContext(channel, request, null, null);
+                    BlockExitResult pre = acl.preCheck(rc);
+                    if (pre != null && !(pre.isMatch() && pre.getBlock().getPolicy() == Block.Policy.ALLOW)) {
+                        auditLog.log(rc, pre, acl.getAuthCache());
+                        // The audit log has the details already
+                        if (!auditLog.isEnabled() || logger.isDebugEnabled()) {
+                            logger.info("forbidden request before its action: " + rc + " Reason: " + pre.getBlock());
+                        }
+                        IndexLevelActionFilter.sendForbidden(channel, acl, conf.forbiddenResponse, logger);
+                        return;
+                    }
+                    if (pre != null) {
+                        request.putInContext(PreDecision.CONTEXT_KEY, new PreDecision(acl, pre));
+                    }
+                }
+
                 request.putInContext("request", request);
                 request.putInContext("channel", channel);
                 filterChain.continueProcessing(request, channel);
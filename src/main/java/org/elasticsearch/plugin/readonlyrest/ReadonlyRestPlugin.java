@@ -1,10 +1,25 @@
 package org.elasticsearch.plugin.readonlyrest;
 
 import org.elasticsearch.action.ActionModule;
+import org.elasticsearch.common.component.LifecycleComponent;
+import org.elasticsearch.common.inject.Module;
 import org.elasticsearch.http.HttpServerModule;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexWatcher;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
+import org.elasticsearch.plugin.readonlyrest.reload.ReloadAclAction;
+import org.elasticsearch.plugin.readonlyrest.reload.RestReloadAclAction;
+import org.elasticsearch.plugin.readonlyrest.reload.TransportReloadAclAction;
+import org.elasticsearch.plugin.readonlyrest.stats.ReadonlyRestStatsAction;
+import org.elasticsearch.plugin.readonlyrest.stats.RestReadonlyRestStatsAction;
+import org.elasticsearch.plugin.readonlyrest.stats.TransportReadonlyRestStatsAction;
 import org.elasticsearch.plugins.Plugin;
 import org.elasticsearch.rest.RestModule;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
 public class ReadonlyRestPlugin extends Plugin {
 
   @Override
@@ -17,8 +32,20 @@ public class ReadonlyRestPlugin extends Plugin {
     return "Reject attempts to change data, so we can expose this REST API to clients";
   }
 
+  @Override
+  public Collection<Module> nodeModules() {
+    return Collections.<Module>singletonList(new ReadOnlyModule());
+  }
+
+  @Override
+  public Collection<Class<? extends LifecycleComponent>> nodeServices() {
+    return Arrays.<Class<? extends LifecycleComponent>>asList(AuditLog.class, ACLIndexWatcher.class, DnsCache.class);
+  }
+
   public void onModule(RestModule module) {
     module.addRestAction(ReadonlyRestAction.class);
+    module.addRestAction(RestReadonlyRestStatsAction.class);
+    module.addRestAction(RestReloadAclAction.class);
   }
 
   public void onModule(HttpServerModule module) {
@@ -27,6 +54,8 @@ public class ReadonlyRestPlugin extends Plugin {
 
   public void onModule(final ActionModule module) {
     module.registerFilter(IndexLevelActionFilter.class);
+    module.registerAction(ReadonlyRestStatsAction.INSTANCE, TransportReadonlyRestStatsAction.class);
+    module.registerAction(ReloadAclAction.INSTANCE, TransportReloadAclAction.class);
   }
 
 }
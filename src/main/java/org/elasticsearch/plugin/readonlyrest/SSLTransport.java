@@ -5,6 +5,7 @@ import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.http.netty.NettyHttpServerTransport;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.handler.ssl.SslHandler;
@@ -22,12 +23,17 @@ public class SSLTransport extends NettyHttpServerTransport {
 
   private final SSLEngineProvider sslContextProvider;
   protected ConfigurationHelper conf;
+  private final ACLService aclService;
+  private final BodyLengthLimitStats bodyLengthLimitStats;
 
   @Inject
-  public SSLTransport(Settings settings, SSLEngineProvider contextProvider, NetworkService networkService, BigArrays bigArrays, ConfigurationHelper conf) {
+  public SSLTransport(Settings settings, SSLEngineProvider contextProvider, NetworkService networkService, BigArrays bigArrays,
+                      ConfigurationHelper conf, ACLService aclService, BodyLengthLimitStats bodyLengthLimitStats) {
     super(settings, networkService, bigArrays);
     this.conf = conf;
     this.sslContextProvider = contextProvider;
+    this.aclService = aclService;
+    this.bodyLengthLimitStats = bodyLengthLimitStats;
   }
 
   @Override
@@ -43,6 +49,10 @@ public class SSLTransport extends NettyHttpServerTransport {
 
     public ChannelPipeline getPipeline() throws Exception {
       ChannelPipeline pipeline = super.getPipeline();
+      if (conf.enabled) {
+        // Reject oversized bodies before the aggregator buffers them (after decompression, like the ACL sees them)
+        pipeline.addBefore("aggregator", "readonlyrest_body_length", new BodyLengthLimitHandler(aclService, bodyLengthLimitStats));
+      }
       if (conf.sslEnabled) {
         SSLContext sslCtx = sslContextProvider.getContext();
         SSLEngine sslEngine = sslCtx.createSSLEngine();
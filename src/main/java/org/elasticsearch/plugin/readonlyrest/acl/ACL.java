@@ -1,63 +1,323 @@
 package org.elasticsearch.plugin.readonlyrest.acl;
 
-import org.elasticsearch.common.inject.Inject;
-import org.elasticsearch.common.inject.Singleton;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserVariables;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.GroupsRule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.HostsRule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.MaxBodyLengthRule;
+import org.elasticsearch.plugin.readonlyrest.stats.HistogramSnapshot;
+import org.elasticsearch.plugin.readonlyrest.stats.LatencyHistogram;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.*;
 
 /**
  * Created by sscarduzio on 13/02/2016.
+ * <p>
+ * Immutable once built: a configuration change builds a new ACL, published by the ACLService.
  */
-
-@Singleton
 public class ACL {
   private final ESLogger logger = Loggers.getLogger(getClass());
   // Array list because it preserves the insertion order
   private ArrayList<Block> blocks = new ArrayList<>();
-  private final static String RULES_PREFIX = "readonlyrest.access_control_rules";
+  final static String RULES_PREFIX = "readonlyrest.access_control_rules";
   private final static String USERS_PREFIX = "readonlyrest.users";
   private boolean basicAuthConfigured = false;
+  private final ACLProgram program;
+  // The blocks by their settings, to tell which ones a reload can carry over
+  private final Map<Map<String, String>, Block> blocksBySettings = new HashMap<>();
+  private final Map<String, String> usersSettings;
+  private int reusedBlocksCount = 0;
+  // All the distinct body length limits, sorted
+  private final int[] bodyLengthLimits;
+  private final AuthCache authCache;
+  private final CounterMetric checks = new CounterMetric();
+  private final CounterMetric allowed = new CounterMetric();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  // How long each phase of the construction took, in nanoseconds
+  private final Map<String, Long> buildNanos = new LinkedHashMap<>();
 
-  @Inject
   public ACL(Settings s) {
+    this(s, new ConfigurationHelper(s));
+  }
+
+  private ACL(Settings s, ConfigurationHelper conf) {
+    this(s, conf, new DnsCache(s, conf));
+  }
+
+  public ACL(Settings s, ConfigurationHelper conf, DnsCache dnsCache) {
+    this(s, conf, dnsCache, null);
+  }
+
+  /**
+   * Build the ACL replacing the previous one (if not null). The blocks whose settings did not change are
+   * carried over with their stats and their learned rules order, unless they check groups and the users changed.
+   */
+  public ACL(Settings s, ConfigurationHelper conf, DnsCache dnsCache, ACL previous) {
+    long start = System.nanoTime();
+    long lap = start;
+    // Read from the reloaded settings when they have them
+    int authCacheMaxSize = s.getAsInt("readonlyrest.auth_cache.max_size", conf.authCacheMaxSize);
+    long authCacheTtl = s.getAsTime("readonlyrest.auth_cache.ttl", conf.authCacheTtl).millis();
+    if (previous == null) {
+      authCache = new AuthCache(authCacheMaxSize, authCacheTtl);
+    }
+    else {
+      // Shared with the rules of the blocks carried over. The entries were verified against the old users.
+      authCache = previous.authCache;
+      authCache.reset(authCacheMaxSize, authCacheTtl);
+    }
     Map<String, Settings> g = s.getGroups(RULES_PREFIX);
     // Maintaining the order is not guaranteed, moving everything to tree map!
     TreeMap<String, Settings> tmp = new TreeMap<>();
     tmp.putAll(g);
     g = tmp;
     Map<String, Settings> users = s.getGroups(USERS_PREFIX);
+    usersSettings = s.getByPrefix(USERS_PREFIX).getAsMap();
+    boolean usersChanged = previous == null || !usersSettings.equals(previous.usersSettings);
+    Map<Map<String, String>, Block> reusable = previous == null ? new HashMap<Map<String, String>, Block>()
+        : new HashMap<>(previous.blocksBySettings);
+    lap = phase("settings", lap);
+    UserRegistry userRegistry = new UserRegistry(new ArrayList<>(users.values()), authCache);
+    logger.info("Users: " + userRegistry.getUsersCount() + ", groups: " + userRegistry.getGroupsCount());
+    lap = phase("users", lap);
+    // The blocks carried over go first, so that the new ones share their rules
+    Map<String, Rule> rules = new HashMap<>();
+    Map<String, Block> kept = new HashMap<>();
+    for (String k : g.keySet()) {
+      // Removed once taken, so that two identical blocks don't end up as the same instance
+      Block block = reusable.remove(g.get(k).getAsMap());
+      if (block != null && (!usersChanged || !checksGroups(block))) {
+        kept.put(k, block);
+        for (Rule r : block.getRules()) {
+          if (!r.isRewriting()) {
+            rules.put(r.getSignature(), r);
+          }
+        }
+      }
+    }
+    BlockContext context = new BlockContext(userRegistry, dnsCache, authCache, rules,
+        new UserVariables(conf.userVariablesCacheMaxSize, conf.userVariablesCacheTtl.millis()));
     for (String k : g.keySet()) {
-      Block block = new Block(g.get(k), new ArrayList<>(users.values()), logger);
+      Block block = kept.get(k);
+      if (block != null) {
+        reusedBlocksCount++;
+        logger.info("KEEPING " + block.toString());
+      }
+      else {
+        block = new Block(g.get(k), context, logger);
+        logger.info("ADDING " + block.toString());
+      }
       blocks.add(block);
+      blocksBySettings.put(g.get(k).getAsMap(), block);
       if (block.isAuthHeaderAccepted()) {
         basicAuthConfigured = true;
       }
-      logger.info("ADDING " + block.toString());
     }
+    lap = phase("blocks", lap);
+    program = ACLProgram.compile(blocks);
+    logger.info("ACL compiled: " + program);
+    lap = phase("compile", lap);
+
+    int[] limits = new int[0];
+    for (Block b : blocks) {
+      for (Rule r : b.getRules()) {
+        if (r instanceof MaxBodyLengthRule) {
+          int l = ((MaxBodyLengthRule) r).getMaxBodyLength();
+          if (Arrays.binarySearch(limits, l) < 0) {
+            limits = Arrays.copyOf(limits, limits.length + 1);
+            limits[limits.length - 1] = l;
+            Arrays.sort(limits);
+          }
+        }
+      }
+    }
+    bodyLengthLimits = limits;
+    phase("body_length_limits", lap);
+
+    StringBuilder sb = new StringBuilder();
+    for (Map.Entry<String, Long> e : buildNanos.entrySet()) {
+      sb.append(sb.length() == 0 ? "" : ", ").append(e.getKey()).append(": ").append(TimeValue.timeValueNanos(e.getValue()));
+    }
+    logger.info("ACL of " + blocks.size() + " blocks built in " + TimeValue.timeValueNanos(System.nanoTime() - start) + " (" + sb + ")");
+  }
+
+  private long phase(String name, long since) {
+    long now = System.nanoTime();
+    buildNanos.put(name, now - since);
+    return now;
+  }
+
+  private static boolean checksGroups(Block block) {
+    for (Rule r : block.getRules()) {
+      if (r instanceof GroupsRule) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The longest body this request may carry and still be allowed by some block, as far as the request line
+   * and the headers tell: used to reject oversized requests before their body is received.
+   * Only the blocks the request line and the headers may select are looked at (see ACLProgram.bodyLengthLimit).
+   *
+   * @return the limit in bytes, or Long.MAX_VALUE if a body of any length may be allowed
+   */
+  public long bodyLengthLimit(RequestContext rc) {
+    if (!isBodyLengthLimited()) {
+      return Long.MAX_VALUE;
+    }
+    long limit = program.bodyLengthLimit(rc);
+    // No allow block applies: the length is not the issue, the ACL will forbid it as usual
+    return limit < 0 ? Long.MAX_VALUE : limit;
+  }
+
+  /**
+   * @return whether some block limits the body length, so that some requests may be rejected on their length alone
+   */
+  public boolean isBodyLengthLimited() {
+    return bodyLengthLimits.length > 0;
+  }
+
+  /**
+   * Requests whose body lengths exceed the same body length limits are treated the same by this ACL.
+   *
+   * @return how many of the configured body length limits are exceeded by the given length
+   */
+  public int bodyLengthClass(int length) {
+    int exceeded = 0;
+    while (exceeded < bodyLengthLimits.length && length > bodyLengthLimits[exceeded]) {
+      exceeded++;
+    }
+    return exceeded;
+  }
+
+  public List<Block> getBlocks() {
+    return Collections.unmodifiableList(blocks);
+  }
+
+  public AuthCache getAuthCache() {
+    return authCache;
+  }
+
+  /**
+   * @return the host names the hosts rules of this ACL resolve through the DNS cache
+   */
+  public Set<String> getHostnames() {
+    Set<String> hostnames = new HashSet<>();
+    for (Block b : blocks) {
+      for (Rule r : b.getRules()) {
+        if (r instanceof HostsRule) {
+          hostnames.addAll(((HostsRule) r).getHostnames());
+        }
+      }
+    }
+    return hostnames;
+  }
+
+  /**
+   * @return how long each phase of the construction of this ACL took, in nanoseconds, in order
+   */
+  public Map<String, Long> getBuildNanos() {
+    return Collections.unmodifiableMap(buildNanos);
+  }
+
+  /**
+   * @return how many distinct rules the blocks share the outcomes of, i.e. the memo size of a request
+   */
+  public int getPredicatesCount() {
+    return program.getPredicatesCount();
+  }
+
+  /**
+   * @return how many blocks were carried over from the ACL this one replaced
+   */
+  public int getReusedBlocksCount() {
+    return reusedBlocksCount;
+  }
+
+  /**
+   * @return how many requests were evaluated (the decisions served from the cache are not)
+   */
+  public long getChecks() {
+    return checks.count();
+  }
+
+  /**
+   * @return how many of the evaluated requests matched an allow block
+   */
+  public long getAllowed() {
+    return allowed.count();
+  }
+
+  public HistogramSnapshot getLatency() {
+    return latency.snapshot();
   }
 
   public boolean isBasicAuthConfigured() {
     return basicAuthConfigured;
   }
 
+  /**
+   * Phase one of the evaluation, on the request line and the headers only: in the REST filter, before the
+   * body is parsed and the action request is built. See ACLProgram.preEvaluate.
+   *
+   * @return the outcome if it is certain whatever the action, null if check() must tell
+   */
+  public BlockExitResult preCheck(RequestContext rc) {
+    long start = System.nanoTime();
+    BlockExitResult result = program.preEvaluate(rc);
+    if (result != null) {
+      latency.record(System.nanoTime() - start);
+      checks.inc();
+      if (result.isMatch() && result.getBlock().getPolicy() == Block.Policy.ALLOW) {
+        allowed.inc();
+      }
+    }
+    return result;
+  }
+
   public BlockExitResult check(RequestContext rc) {
-    logger.trace("checking request:" + rc);
-    for (Block b : blocks) {
-      BlockExitResult result = b.check(rc);
-      if (result.isMatch()) {
-        logger.info("Block " + b.getName() + " has matched: " + result);
-        return result;
+    if (logger.isTraceEnabled()) {
+      logger.trace("checking request:" + rc);
+    }
+    long start = System.nanoTime();
+    BlockExitResult result = program.evaluate(rc);
+    latency.record(System.nanoTime() - start);
+    checks.inc();
+    if (result.isMatch()) {
+      if (result.getBlock().getPolicy() == Block.Policy.ALLOW) {
+        allowed.inc();
+      }
+      // On the request threads: the audit log is the place to record the decisions
+      if (logger.isDebugEnabled()) {
+        logger.debug("Block " + result.getBlock().getName() + " has matched: " + result);
       }
+      return result;
+    }
+    if (logger.isDebugEnabled()) {
+      logger.debug(ANSI_RED + "no block has matched, forbidding by default: " + rc + ANSI_RESET);
     }
-    logger.info(ANSI_RED + "no block has matched, forbidding by default: " + rc + ANSI_RESET);
     return BlockExitResult.NO_MATCH;
   }
 }
@@ -0,0 +1,44 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+
+/**
+ * Keeps the index the ACL is read from (see ACLIndexWatcher) out of reach of the blocks that merely happen to
+ * allow it: writing to it or deleting it takes a block whose indices rule names it explicitly, without wildcards.
+ */
+public class ACLIndexProtection {
+  private final String index;
+
+  public ACLIndexProtection(String index) {
+    this.index = index;
+  }
+
+  public String getIndex() {
+    return index;
+  }
+
+  /**
+   * @param allowedBy the allow block the ACL matched the request with
+   * @return false if the request writes to or deletes the ACL index, and the block does not name it
+   */
+  public boolean allows(RequestContext rc, Block allowedBy) {
+    if (!isWrite(rc.getAction()) || !targetsIndex(rc)) {
+      return true;
+    }
+    return allowedBy.namesIndex(index);
+  }
+
+  private static boolean isWrite(String action) {
+    return action != null && (action.startsWith("indices:data/write/") || action.equals("indices:admin/delete"));
+  }
+
+  private boolean targetsIndex(RequestContext rc) {
+    for (String i : rc.getIndices()) {
+      if (i.equals(index) || i.equals("_all") || (i.contains("*") && Regex.simpleMatch(i, index))) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,203 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Provider;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.gateway.GatewayService;
+import org.elasticsearch.index.IndexNotFoundException;
+import org.elasticsearch.indices.IndexAlreadyExistsException;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the ACL of this node in line with the one stored in the ACL index, so all the nodes share it.
+ * <p>
+ * The ACL is the YAML (or JSON) of the "settings" field of the document acl/1, in the same format as
+ * elasticsearch.yml. Its version is polled (without the source) at a fixed interval, and when the index is
+ * created. A new version is fetched once and compiled locally by the ACLService: requests never read the index.
+ * The master creates the index on demand, with one shard copy on every node. Polling ends with stop().
+ */
+@Singleton
+public class ACLIndexWatcher extends AbstractLifecycleComponent<ACLIndexWatcher> implements ClusterStateListener {
+  public static final String TYPE = "acl";
+  public static final String ID = "1";
+  public static final String FIELD = "settings";
+  private static final TimeValue TIMEOUT = TimeValue.timeValueSeconds(30);
+
+  private final String index;
+  private final long pollIntervalMillis;
+  private final ClusterService clusterService;
+  private final Provider<Client> client;
+  private final ACLService aclService;
+  private final boolean enabled;
+
+  // Guards the scheduler only: poll() holds the instance lock while talking to the cluster
+  private final Object schedulerLock = new Object();
+  private ScheduledExecutorService scheduler = null;
+  // The version of the document last applied (even if it could not be loaded, so a broken ACL is not retried)
+  private volatile long appliedVersion = -1;
+
+  @Inject
+  public ACLIndexWatcher(Settings settings, ConfigurationHelper conf, ClusterService clusterService, Provider<Client> client,
+                         ACLService aclService) {
+    super(settings);
+    this.index = conf.aclIndex;
+    this.pollIntervalMillis = conf.aclIndexPollInterval.millis();
+    this.clusterService = clusterService;
+    this.client = client;
+    this.aclService = aclService;
+    this.enabled = conf.enabled && conf.aclIndexEnabled;
+    if (enabled) {
+      clusterService.add(this);
+      logger.info("The ACL is read from the index " + index + " every " + conf.aclIndexPollInterval);
+    }
+  }
+
+  @Override
+  protected void doStart() {
+  }
+
+  @Override
+  protected void doStop() {
+    if (enabled) {
+      clusterService.remove(this);
+    }
+    synchronized (schedulerLock) {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+        scheduler = null;
+      }
+    }
+  }
+
+  @Override
+  protected void doClose() {
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public String getIndex() {
+    return index;
+  }
+
+  public long getAppliedVersion() {
+    return appliedVersion;
+  }
+
+  @Override
+  public void clusterChanged(ClusterChangedEvent event) {
+    if (event.state().blocks().hasGlobalBlock(GatewayService.STATE_NOT_RECOVERED_BLOCK)) {
+      return;
+    }
+    // No blocking calls from the cluster state thread: the polls run on our own
+    synchronized (schedulerLock) {
+      if (lifecycle.stoppedOrClosed()) {
+        return;
+      }
+      if (scheduler == null) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("readonlyrest-acl-index"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            pollQuietly();
+          }
+        }, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        return;
+      }
+      if (event.indicesCreated().contains(index)) {
+        scheduler.execute(new Runnable() {
+          @Override
+          public void run() {
+            pollQuietly();
+          }
+        });
+      }
+    }
+  }
+
+  private void pollQuietly() {
+    try {
+      poll(false);
+    } catch (Exception e) {
+      // The cluster may be changing, the next poll will tell
+      logger.warn("could not poll the ACL index " + index + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Load the ACL of the index if its version is not the one in use.
+   *
+   * @param force load it even if its version is the one in use
+   * @return the outcome of the reload, null if there was nothing new to load
+   */
+  public synchronized ReloadResult poll(boolean force) {
+    long start = System.nanoTime();
+    GetResponse head;
+    try {
+      head = client.get().prepareGet(index, TYPE, ID).setFetchSource(false).get(TIMEOUT);
+    } catch (IndexNotFoundException e) {
+      createIndex();
+      return force ? aclService.failed(start, "the ACL index " + index + " does not exist", null) : null;
+    }
+    if (!head.isExists()) {
+      return force ? aclService.failed(start, "no ACL in the index " + index, null) : null;
+    }
+    if (!force && head.getVersion() == appliedVersion) {
+      return null;
+    }
+
+    GetResponse doc = client.get().prepareGet(index, TYPE, ID).get(TIMEOUT);
+    if (!doc.isExists()) {
+      // Deleted in between
+      return force ? aclService.failed(start, "no ACL in the index " + index, null) : null;
+    }
+    ReloadResult result = load(doc, start);
+    appliedVersion = doc.getVersion();
+    return result;
+  }
+
+  private ReloadResult load(GetResponse doc, long start) {
+    Object source = doc.getSource().get(FIELD);
+    if (!(source instanceof String)) {
+      return aclService.failed(start, "the ACL document " + index + "/" + TYPE + "/" + ID + " has no string field \"" + FIELD + "\"", null);
+    }
+    Settings settings;
+    try {
+      settings = Settings.builder().loadFromSource((String) source).build();
+    } catch (Exception e) {
+      return aclService.failed(start, "cannot parse version " + doc.getVersion() + " of the ACL document: " + e.getMessage(), e);
+    }
+    logger.info("loading version " + doc.getVersion() + " of the ACL from the index " + index);
+    return aclService.reload(settings);
+  }
+
+  private void createIndex() {
+    if (!clusterService.state().nodes().localNodeMaster()) {
+      return;
+    }
+    try {
+      client.get().admin().indices().prepareCreate(index)
+          .setSettings(Settings.builder()
+              .put("index.number_of_shards", 1)
+              .put("index.auto_expand_replicas", "0-all"))
+          .get(TIMEOUT);
+      logger.info("created the ACL index " + index);
+    } catch (IndexAlreadyExistsException e) {
+      // Someone was faster
+    }
+  }
+}
@@ -0,0 +1,165 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.rest.RestRequest;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The access control blocks compiled into an immutable, evaluation ordered program.
+ * <p>
+ * Rules with the same configuration appearing in several blocks are a single shared instance (see
+ * BlockContext.share): each one is given a slot, and its outcome is memoized in the RequestContext,
+ * so it is evaluated at most once per request. The slots belong to the program, not to the rules: a reload
+ * numbers the rules in use afresh, while the program it replaces keeps running with its own numbering.
+ * <p>
+ * Only the blocks whose actions, methods and api_keys rules may accept the request are checked (see BlockIndex).
+ */
+public class ACLProgram {
+
+  private final Block[] blocks;
+  // The slot of each rule of each block, in registry order
+  private final int[][] slots;
+  private final BlockIndex index;
+  private final int predicatesCount;
+  private final int rulesCount;
+
+  private ACLProgram(Block[] blocks, int[][] slots, int predicatesCount, int rulesCount) {
+    this.blocks = blocks;
+    this.slots = slots;
+    this.index = new BlockIndex(blocks);
+    this.predicatesCount = predicatesCount;
+    this.rulesCount = rulesCount;
+  }
+
+  public static ACLProgram compile(List<Block> blocks) {
+    Map<String, Integer> bySignature = new HashMap<>();
+    int[][] slots = new int[blocks.size()][];
+    int rulesCount = 0;
+    for (int i = 0; i < blocks.size(); i++) {
+      List<Rule> rules = blocks.get(i).getRulesInRegistryOrder();
+      slots[i] = new int[rules.size()];
+      for (int j = 0; j < rules.size(); j++) {
+        Rule r = rules.get(j);
+        rulesCount++;
+        if (r.isRewriting()) {
+          slots[i][j] = Block.NO_SLOT;
+          continue;
+        }
+        Integer slot = bySignature.get(r.getSignature());
+        if (slot == null) {
+          slot = bySignature.size();
+          bySignature.put(r.getSignature(), slot);
+        }
+        slots[i][j] = slot;
+      }
+    }
+    return new ACLProgram(blocks.toArray(new Block[blocks.size()]), slots, bySignature.size(), rulesCount);
+  }
+
+  /**
+   * Run the candidate blocks in order, first match wins.
+   */
+  public BlockExitResult evaluate(RequestContext rc) {
+    byte[] memo = rc.getRuleOutcomes(this, predicatesCount);
+    RestRequest request = rc.getRequest();
+    long[] byAction = index.forAction(rc.getAction());
+    long[] byMethod = index.forMethod(request == null ? null : request.method());
+    long[] byApiKey = index.forApiKey(request == null ? null : request.header("X-Api-Key"));
+    for (int w = 0; w < byAction.length; w++) {
+      long candidates = byAction[w] & byMethod[w] & byApiKey[w];
+      while (candidates != 0) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(candidates);
+        candidates &= candidates - 1;
+        BlockExitResult result = blocks[i].check(rc, memo, slots[i]);
+        if (result.isMatch()) {
+          return result;
+        }
+      }
+    }
+    return BlockExitResult.NO_MATCH;
+  }
+
+  /**
+   * Phase one of the evaluation, on the request line and the headers only (see Block.preCheck): the candidate
+   * blocks in order, up to the first one certain to match.
+   *
+   * @return the outcome, if it's certain whatever the action: that first certain block if no block before it
+   * may match, BlockExitResult.NO_MATCH if no allow block may match. Null if the action phase must tell.
+   */
+  public BlockExitResult preEvaluate(RequestContext rc) {
+    byte[] memo = rc.getRuleOutcomes(this, predicatesCount);
+    RestRequest request = rc.getRequest();
+    long[] byAction = index.forAction(null);
+    long[] byMethod = index.forMethod(request.method());
+    long[] byApiKey = index.forApiKey(request.header("X-Api-Key"));
+    boolean possibleBefore = false;
+    boolean allowPossible = false;
+    for (int w = 0; w < byAction.length; w++) {
+      long candidates = byAction[w] & byMethod[w] & byApiKey[w];
+      while (candidates != 0) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(candidates);
+        candidates &= candidates - 1;
+        Block.PreCheck pre = blocks[i].preCheck(rc, memo, slots[i]);
+        if (pre == Block.PreCheck.REJECTED) {
+          continue;
+        }
+        if (pre == Block.PreCheck.CERTAIN && !possibleBefore) {
+          return blocks[i].getMatchResult();
+        }
+        allowPossible |= blocks[i].getPolicy() == Block.Policy.ALLOW;
+        if (pre == Block.PreCheck.CERTAIN) {
+          // The blocks after it are out of reach
+          return allowPossible ? null : BlockExitResult.NO_MATCH;
+        }
+        possibleBefore = true;
+      }
+    }
+    return allowPossible ? null : BlockExitResult.NO_MATCH;
+  }
+
+  /**
+   * The highest body length limit among the allow blocks that may accept the request, judging from the
+   * request line and the headers only (see Block.bodyLengthLimit).
+   *
+   * @return the limit in bytes, or -1 if no allow block may accept the request
+   */
+  public long bodyLengthLimit(RequestContext rc) {
+    RestRequest request = rc.getRequest();
+    long[] byAction = index.forAction(null);
+    long[] byMethod = index.forMethod(request.method());
+    long[] byApiKey = index.forApiKey(request.header("X-Api-Key"));
+    long limit = -1;
+    for (int w = 0; w < byAction.length; w++) {
+      long candidates = byAction[w] & byMethod[w] & byApiKey[w];
+      while (candidates != 0) {
+        int i = (w << 6) + Long.numberOfTrailingZeros(candidates);
+        candidates &= candidates - 1;
+        if (blocks[i].getPolicy() == Block.Policy.ALLOW) {
+          limit = Math.max(limit, blocks[i].bodyLengthLimit(rc));
+          if (limit == Long.MAX_VALUE) {
+            return limit;
+          }
+        }
+      }
+    }
+    return limit;
+  }
+
+  public int getBlocksCount() {
+    return blocks.length;
+  }
+
+  public int getPredicatesCount() {
+    return predicatesCount;
+  }
+
+  @Override
+  public String toString() {
+    return "{ blocks: " + blocks.length + ", rules: " + rulesCount + ", shared predicates: " + predicatesCount + ", index: " + index + " }";
+  }
+}
@@ -0,0 +1,162 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Provider;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.authc.RestCredentials;
+import org.elasticsearch.watcher.FileChangesListener;
+import org.elasticsearch.watcher.FileWatcher;
+import org.elasticsearch.watcher.ResourceWatcherService;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.ANSI_RED;
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.ANSI_RESET;
+
+/**
+ * Holds the ACL in use, and replaces it when the access control rules or the users change.
+ * <p>
+ * The new ACL is built aside from the requests (from the reload file, when it changes or on demand), then
+ * published with a single volatile write: a request sees either the old ACL or the new one, never a mix.
+ * The blocks that did not change are carried over, with their stats and their learned rules order.
+ * If the new configuration can't be loaded, the ACL in use is kept.
+ */
+@Singleton
+public class ACLService implements Provider<ACL> {
+  private final ESLogger logger = Loggers.getLogger(getClass());
+
+  private final ConfigurationHelper conf;
+  private final DnsCache dnsCache;
+  private final DecisionCache decisionCache;
+  private final RestCredentials restCredentials;
+  private final Path source;
+
+  private volatile ACL acl;
+  // Only written under the lock of reload()
+  private volatile long version = 1;
+  private volatile ReloadResult lastReload = null;
+
+  @Inject
+  public ACLService(Settings settings, Environment env, ConfigurationHelper conf, DnsCache dnsCache, DecisionCache decisionCache,
+                    RestCredentials restCredentials, ResourceWatcherService watcherService) {
+    this(settings, conf, dnsCache, decisionCache, restCredentials, env.configFile().resolve(conf.reloadFile));
+    if (conf.enabled && conf.reloadWatch) {
+      FileWatcher watcher = new FileWatcher(source);
+      watcher.addListener(new FileChangesListener() {
+        @Override
+        public void onFileCreated(Path file) {
+          reload();
+        }
+
+        @Override
+        public void onFileChanged(Path file) {
+          reload();
+        }
+      });
+      try {
+        watcherService.add(watcher, ResourceWatcherService.Frequency.HIGH);
+        logger.info("Watching " + source + " for ACL changes");
+      } catch (IOException e) {
+        logger.error("Cannot watch " + source + " for ACL changes", e);
+      }
+    }
+  }
+
+  /**
+   * @param source the file reload() reads the configuration from
+   */
+  public ACLService(Settings settings, ConfigurationHelper conf, DnsCache dnsCache, DecisionCache decisionCache,
+                    RestCredentials restCredentials, Path source) {
+    this.conf = conf;
+    this.dnsCache = dnsCache;
+    this.decisionCache = decisionCache;
+    this.restCredentials = restCredentials;
+    this.source = source;
+    this.acl = new ACL(settings, conf, dnsCache);
+  }
+
+  /**
+   * @return the ACL in use: read it once per request
+   */
+  @Override
+  public ACL get() {
+    return acl;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the outcome of the last reload, null if there was none
+   */
+  public ReloadResult getLastReload() {
+    return lastReload;
+  }
+
+  public Path getSource() {
+    return source;
+  }
+
+  /**
+   * Reload the access control rules and the users from the reload file.
+   */
+  public ReloadResult reload() {
+    long start = System.nanoTime();
+    Settings settings;
+    try {
+      settings = Settings.builder().loadFromPath(source).replacePropertyPlaceholders().build();
+    } catch (Exception e) {
+      return failed(start, "cannot read " + source + ": " + e.getMessage(), e);
+    }
+    return reload(settings, start);
+  }
+
+  /**
+   * Replace the ACL with one built from the given settings, which must have some access control rules.
+   */
+  public ReloadResult reload(Settings settings) {
+    return reload(settings, System.nanoTime());
+  }
+
+  private synchronized ReloadResult reload(Settings settings, long start) {
+    if (settings.getGroups(ACL.RULES_PREFIX).isEmpty()) {
+      // Most likely a file being written, rather than an ACL forbidding everything
+      return failed(start, "no " + ACL.RULES_PREFIX + " found", null);
+    }
+    ACL next;
+    try {
+      next = new ACL(settings, conf, dnsCache, acl);
+    } catch (Exception e) {
+      return failed(start, e.getMessage(), e);
+    }
+
+    acl = next;
+    version++;
+    // The decisions are cached by ACL, the entries of the old one are just taking room
+    decisionCache.invalidateAll();
+    // The names only the old ACL had would otherwise be resolved forever
+    dnsCache.retainAll(next.getHostnames());
+    restCredentials.reload(settings);
+
+    ReloadResult result = new ReloadResult(version, next.getBlocks().size(), next.getReusedBlocksCount(),
+        System.nanoTime() - start, null);
+    lastReload = result;
+    logger.info("ACL reloaded: " + result);
+    return result;
+  }
+
+  ReloadResult failed(long start, String reason, Exception e) {
+    ACL current = acl;
+    ReloadResult result = new ReloadResult(version, current.getBlocks().size(), 0, System.nanoTime() - start, reason);
+    lastReload = result;
+    logger.error(ANSI_RED + "ACL reload failed, keeping the ACL in use: " + reason + ANSI_RESET, e);
+    return result;
+  }
+}
@@ -0,0 +1,114 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, time limited cache of the Basic auth credentials a rule verified, shared by all the authentication
+ * rules of an ACL: once a token proved a user, it is not decoded and hashed again until its entry expires.
+ * <p>
+ * Only verified credentials get in, so tokens matching no user can't evict the valid ones. The entries are
+ * keyed by the token itself: hashing it on every lookup would cost about as much as the SHA-1 the cache saves.
+ */
+public class AuthCache {
+  private static final ESLogger logger = Loggers.getLogger(AuthCache.class);
+
+  // Null when disabled
+  private volatile Cache<String, Credentials> cache;
+
+  public AuthCache(int maxSize, long ttlMillis) {
+    cache = build(maxSize, ttlMillis);
+  }
+
+  private static Cache<String, Credentials> build(int maxSize, long ttlMillis) {
+    if (maxSize <= 0 || ttlMillis <= 0) {
+      logger.info("Authentication cache is disabled");
+      return null;
+    }
+    return CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Drop all the entries, and apply these limits from now on: the rules keep sharing this instance.
+   */
+  public void reset(int maxSize, long ttlMillis) {
+    cache = build(maxSize, ttlMillis);
+  }
+
+  /**
+   * @param token the base64 part of a Basic Authorization header
+   * @return the credentials carried by the token, null if they were not verified (or not lately)
+   */
+  public Credentials get(String token) {
+    Cache<String, Credentials> c = cache;
+    return c == null ? null : c.getIfPresent(token);
+  }
+
+  /**
+   * Remember credentials that some rule verified: they must be the ones the token carries.
+   */
+  public void put(String token, Credentials verified) {
+    Cache<String, Credentials> c = cache;
+    if (c != null) {
+      c.put(token, verified);
+    }
+  }
+
+  /**
+   * @return the credentials carried by the token, null if it can't be decoded
+   */
+  public static Credentials decode(String token) {
+    try {
+      String decoded = new String(Base64.decode(token), Charsets.UTF_8);
+      int colon = decoded.indexOf(':');
+      String user = colon < 0 ? decoded : decoded.substring(0, colon);
+      return new Credentials(user, Hashing.sha1().hashString(decoded, Charsets.UTF_8).toString());
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  public void invalidateAll() {
+    Cache<String, Credentials> c = cache;
+    if (c != null) {
+      c.invalidateAll();
+    }
+  }
+
+  public long size() {
+    Cache<String, Credentials> c = cache;
+    return c == null ? 0 : c.size();
+  }
+
+  public static class Credentials {
+    private final String user;
+    private final String sha1;
+
+    Credentials(String user, String sha1) {
+      this.user = user;
+      this.sha1 = sha1;
+    }
+
+    public String getUser() {
+      return user;
+    }
+
+    /**
+     * @return the hex SHA-1 of "user:password"
+     */
+    public String getSha1() {
+      return sha1;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.ActionsRule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.ApiKeysRule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.MethodsRule;
+import org.elasticsearch.rest.RestRequest;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The blocks a request may match, as told by its action, its HTTP method and its API key alone: a block whose
+ * actions, methods or api_keys rule rejects these is not a candidate, and doesn't need to be checked.
+ * <p>
+ * Candidates are bit sets over the positions of the blocks, so walking the AND of the three in order finds
+ * the same first match as walking all the blocks.
+ * The kibana_access rule is not indexed: with the .kibana-devnull index, it may match any action.
+ */
+class BlockIndex {
+  // Actions are a closed set in practice, this is just a safety net
+  private static final int MAX_CACHED_ACTIONS = 4096;
+
+  private final int blocksCount;
+  private final long[] all;
+  private final Map<RestRequest.Method, long[]> byMethod = new EnumMap<>(RestRequest.Method.class);
+  private final Map<String, long[]> byApiKey = new HashMap<>();
+  // The blocks without an api_keys rule: the candidates of a request with no key, or a key no block knows
+  private final long[] withoutApiKeys;
+  // The actions rule of each block, null if none
+  private final ActionsRule[] actionsRules;
+  private final ConcurrentMap<String, long[]> byAction = new ConcurrentHashMap<>();
+
+  BlockIndex(Block[] blocks) {
+    blocksCount = blocks.length;
+    int words = (blocks.length + 63) >>> 6;
+    all = new long[words];
+    for (int i = 0; i < blocks.length; i++) {
+      set(all, i);
+    }
+    for (RestRequest.Method m : RestRequest.Method.values()) {
+      byMethod.put(m, all.clone());
+    }
+    withoutApiKeys = all.clone();
+    actionsRules = new ActionsRule[blocks.length];
+
+    // First the keys any block knows, each starting with the blocks without an api_keys rule
+    ApiKeysRule[] apiKeysRules = new ApiKeysRule[blocks.length];
+    for (int i = 0; i < blocks.length; i++) {
+      for (Rule r : blocks[i].getRules()) {
+        if (r instanceof ApiKeysRule) {
+          apiKeysRules[i] = (ApiKeysRule) r;
+          clear(withoutApiKeys, i);
+        }
+      }
+    }
+    for (ApiKeysRule r : apiKeysRules) {
+      if (r != null) {
+        for (String key : r.getApiKeys()) {
+          if (!byApiKey.containsKey(key)) {
+            byApiKey.put(key, withoutApiKeys.clone());
+          }
+        }
+      }
+    }
+
+    for (int i = 0; i < blocks.length; i++) {
+      for (Rule r : blocks[i].getRules()) {
+        if (r instanceof MethodsRule) {
+          for (Map.Entry<RestRequest.Method, long[]> e : byMethod.entrySet()) {
+            if (!((MethodsRule) r).getMethods().contains(e.getKey())) {
+              clear(e.getValue(), i);
+            }
+          }
+        }
+        else if (r instanceof ActionsRule) {
+          actionsRules[i] = (ActionsRule) r;
+        }
+      }
+      if (apiKeysRules[i] != null) {
+        for (String key : apiKeysRules[i].getApiKeys()) {
+          set(byApiKey.get(key), i);
+        }
+      }
+    }
+  }
+
+  private static void set(long[] bits, int i) {
+    bits[i >>> 6] |= 1L << i;
+  }
+
+  private static void clear(long[] bits, int i) {
+    bits[i >>> 6] &= ~(1L << i);
+  }
+
+  /**
+   * @return the candidates as far as the HTTP method tells (read only)
+   */
+  long[] forMethod(RestRequest.Method method) {
+    long[] bits = method == null ? null : byMethod.get(method);
+    return bits == null ? all : bits;
+  }
+
+  /**
+   * @return the candidates as far as the X-Api-Key header tells (read only)
+   */
+  long[] forApiKey(String apiKey) {
+    long[] bits = apiKey == null ? null : byApiKey.get(apiKey);
+    return bits == null ? withoutApiKeys : bits;
+  }
+
+  /**
+   * @return the candidates as far as the action tells (read only)
+   */
+  long[] forAction(String action) {
+    if (action == null) {
+      // Not an action request: let the rules decide
+      return all;
+    }
+    long[] bits = byAction.get(action);
+    if (bits != null) {
+      return bits;
+    }
+    bits = all.clone();
+    for (int i = 0; i < blocksCount; i++) {
+      if (actionsRules[i] != null && !actionsRules[i].matchesAction(action)) {
+        clear(bits, i);
+      }
+    }
+    if (byAction.size() < MAX_CACHED_ACTIONS) {
+      byAction.putIfAbsent(action, bits);
+    }
+    return bits;
+  }
+
+  @Override
+  public String toString() {
+    return "{ api keys: " + byApiKey.size() + ", cached actions: " + byAction.size() + " }";
+  }
+}
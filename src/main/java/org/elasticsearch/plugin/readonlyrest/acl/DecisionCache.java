@@ -0,0 +1,174 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded cache of the ACL decisions, so that the same request coming from the same caller over and
+ * over (i.e. dashboards) is evaluated once.
+ * <p>
+ * The key holds everything the rules look at. The entries expire by size and TTL, and they are all
+ * dropped whenever the cluster metadata (indices and aliases), the configuration or the resolved addresses
+ * of the host names change. Disabled by default.
+ */
+@Singleton
+public class DecisionCache implements ClusterStateListener {
+  private final ESLogger logger = Loggers.getLogger(getClass());
+
+  private final Cache<Key, Decision> cache;
+
+  @Inject
+  public DecisionCache(ConfigurationHelper conf, ClusterService clusterService, DnsCache dnsCache) {
+    this(conf.cacheEnabled, conf.cacheMaxSize, conf.cacheTtl.millis());
+    if (cache != null) {
+      clusterService.add(this);
+      // The hosts rules may decide otherwise with the new addresses
+      dnsCache.addListener(new DnsCache.Listener() {
+        @Override
+        public void onRefresh() {
+          invalidateAll();
+        }
+      });
+    }
+  }
+
+  public DecisionCache(boolean enabled, int maxSize, long ttlMillis) {
+    if (!enabled || maxSize <= 0 || ttlMillis <= 0) {
+      cache = null;
+      logger.info("ACL decisions cache is disabled");
+      return;
+    }
+    cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+
+  /**
+   * Look up the decision for this request, or evaluate it against the ACL and remember it.
+   * If the decision came with rewritten indices, those are applied to the request as well.
+   */
+  public BlockExitResult check(ACL acl, RequestContext rc) {
+    if (cache == null) {
+      return acl.check(rc);
+    }
+
+    Key key = new Key(acl, rc);
+    Decision cached = cache.getIfPresent(key);
+    if (cached != null) {
+      logger.debug("ACL decision served from cache");
+      if (cached.rewrittenIndices != null) {
+        rc.setIndices(cached.rewrittenIndices);
+      }
+      return cached.result;
+    }
+
+    BlockExitResult result = acl.check(rc);
+    Set<String> rewritten = rc.isIndicesRewritten() ? Collections.unmodifiableSet(new HashSet<>(rc.getIndices())) : null;
+    cache.put(key, new Decision(result, rewritten));
+    return result;
+  }
+
+  public void invalidateAll() {
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+  }
+
+  public long size() {
+    return cache == null ? 0 : cache.size();
+  }
+
+  @Override
+  public void clusterChanged(ClusterChangedEvent event) {
+    if (event.metaDataChanged()) {
+      invalidateAll();
+    }
+  }
+
+  private static class Decision {
+    private final BlockExitResult result;
+    private final Set<String> rewrittenIndices;
+
+    Decision(BlockExitResult result, Set<String> rewrittenIndices) {
+      this.result = result;
+      this.rewrittenIndices = rewrittenIndices;
+    }
+  }
+
+  private static class Key {
+    private final ACL acl;
+    private final String remoteAddress;
+    private final String xForwardedFor;
+    private final String credentialsDigest;
+    private final String apiKey;
+    private final String action;
+    private final RestRequest.Method method;
+    private final String uri;
+    private final Set<String> indices;
+    private final int bodyLengthClass;
+    private final int hash;
+
+    Key(ACL acl, RequestContext rc) {
+      RestRequest req = rc.getRequest();
+      String authorization = req.header("Authorization");
+      this.acl = acl;
+      this.remoteAddress = rc.getRemoteAddress();
+      this.xForwardedFor = req.header("X-Forwarded-For");
+      this.credentialsDigest = authorization == null ? null : Hashing.sha256().hashString(authorization, Charsets.UTF_8).toString();
+      this.apiKey = req.header("X-Api-Key");
+      this.action = rc.getAction();
+      this.method = req.method();
+      this.uri = req.uri();
+      this.indices = new HashSet<>(rc.getIndices());
+      this.bodyLengthClass = acl.bodyLengthClass(rc.getBody().length());
+      this.hash = Objects.hashCode(System.identityHashCode(acl), remoteAddress, xForwardedFor, credentialsDigest, apiKey,
+          action, method, uri, indices, bodyLengthClass);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) obj;
+      return hash == that.hash
+          && acl == that.acl
+          && bodyLengthClass == that.bodyLengthClass
+          && method == that.method
+          && Objects.equal(remoteAddress, that.remoteAddress)
+          && Objects.equal(xForwardedFor, that.xForwardedFor)
+          && Objects.equal(credentialsDigest, that.credentialsDigest)
+          && Objects.equal(apiKey, that.apiKey)
+          && Objects.equal(action, that.action)
+          && Objects.equal(uri, that.uri)
+          && indices.equals(that.indices);
+    }
+  }
+}
@@ -0,0 +1,222 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.CidrTrie;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the host names found in the ACL in the background, so that matching a request against them
+ * never waits for DNS.
+ * <p>
+ * Every refresh resolves the names whose entry expired, then publishes an immutable snapshot that the
+ * request threads read. Successful resolutions live for the TTL, failures for the negative TTL.
+ * Names that were never resolved yet simply match nothing. The background refresh stops with the node.
+ */
+@Singleton
+public class DnsCache extends AbstractLifecycleComponent<DnsCache> {
+
+  public interface Resolver {
+    InetAddress[] resolve(String hostname) throws UnknownHostException;
+  }
+
+  /**
+   * Told whenever new resolutions are published, so that whoever derived anything from the addresses can drop it.
+   */
+  public interface Listener {
+    void onRefresh();
+  }
+
+  public static final Resolver SYSTEM_RESOLVER = new Resolver() {
+    @Override
+    public InetAddress[] resolve(String hostname) throws UnknownHostException {
+      return InetAddress.getAllByName(hostname);
+    }
+  };
+
+  private final Resolver resolver;
+  private final Ticker ticker;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final long refreshIntervalMillis;
+
+  private final Set<String> hostnames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private volatile Map<String, Entry> snapshot = ImmutableMap.of();
+  // Guards the scheduler only: refresh() holds the instance lock while resolving
+  private final Object schedulerLock = new Object();
+  private ScheduledExecutorService scheduler = null;
+
+  @Inject
+  public DnsCache(Settings settings, ConfigurationHelper conf) {
+    this(settings, SYSTEM_RESOLVER, Ticker.systemTicker(), conf.dnsTtl.millis(), conf.dnsNegativeTtl.millis(),
+        conf.dnsRefreshInterval.millis());
+  }
+
+  public DnsCache(Resolver resolver, Ticker ticker, long ttlMillis, long negativeTtlMillis, long refreshIntervalMillis) {
+    this(Settings.EMPTY, resolver, ticker, ttlMillis, negativeTtlMillis, refreshIntervalMillis);
+  }
+
+  /**
+   * @param refreshIntervalMillis how often to look for expired entries, no background refresh if not positive
+   */
+  public DnsCache(Settings settings, Resolver resolver, Ticker ticker, long ttlMillis, long negativeTtlMillis,
+                  long refreshIntervalMillis) {
+    super(settings);
+    this.resolver = resolver;
+    this.ticker = ticker;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtlMillis);
+    this.refreshIntervalMillis = refreshIntervalMillis;
+  }
+
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Start resolving this host name in the background (if not already).
+   */
+  public void register(String hostname) {
+    if (!hostnames.add(hostname) || refreshIntervalMillis <= 0) {
+      return;
+    }
+    synchronized (schedulerLock) {
+      if (lifecycle.stoppedOrClosed()) {
+        return;
+      }
+      if (scheduler == null) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(EsExecutors.daemonThreadFactory("readonlyrest-dns"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+          @Override
+          public void run() {
+            refresh();
+          }
+        }, refreshIntervalMillis, refreshIntervalMillis, TimeUnit.MILLISECONDS);
+      }
+      // Don't wait for the next round for the new name
+      scheduler.execute(new Runnable() {
+        @Override
+        public void run() {
+          refresh();
+        }
+      });
+    }
+  }
+
+  /**
+   * Stop resolving the host names not in this set, and forget their addresses.
+   */
+  public synchronized void retainAll(Set<String> names) {
+    if (!hostnames.retainAll(names)) {
+      return;
+    }
+    ImmutableMap.Builder<String, Entry> next = ImmutableMap.builder();
+    for (Map.Entry<String, Entry> e : snapshot.entrySet()) {
+      if (names.contains(e.getKey())) {
+        next.put(e);
+      }
+    }
+    snapshot = next.build();
+  }
+
+  /**
+   * @return true if the host name is currently known to resolve to this address (raw bytes, 4 or 16)
+   */
+  public boolean matches(String hostname, byte[] address) {
+    Entry e = snapshot.get(hostname);
+    return e != null && e.addresses.contains(address);
+  }
+
+  public boolean isResolved(String hostname) {
+    return snapshot.containsKey(hostname);
+  }
+
+  /**
+   * Resolve the registered names that are new or expired, and publish the results.
+   */
+  public synchronized void refresh() {
+    long now = ticker.read();
+    Map<String, Entry> current = snapshot;
+    ImmutableMap.Builder<String, Entry> next = ImmutableMap.builder();
+    boolean changed = false;
+    for (String h : hostnames) {
+      Entry e = current.get(h);
+      if (e == null || now - e.expiresAt >= 0) {
+        e = resolve(h, now);
+        changed = true;
+      }
+      next.put(h, e);
+    }
+    if (changed) {
+      snapshot = next.build();
+      for (Listener l : listeners) {
+        l.onRefresh();
+      }
+    }
+  }
+
+  private Entry resolve(String hostname, long now) {
+    CidrTrie addresses = new CidrTrie();
+    try {
+      for (InetAddress a : resolver.resolve(hostname)) {
+        byte[] bytes = a.getAddress();
+        addresses.add(bytes, bytes.length * 8);
+      }
+    } catch (UnknownHostException e) {
+      logger.warn("could not resolve host name " + hostname + ": " + e.getMessage());
+      return new Entry(addresses, now + negativeTtlNanos);
+    } catch (RuntimeException e) {
+      logger.error("could not resolve host name " + hostname, e);
+      return new Entry(addresses, now + negativeTtlNanos);
+    }
+    logger.debug("resolved " + hostname + ": " + addresses);
+    return new Entry(addresses, now + (addresses.isEmpty() ? negativeTtlNanos : ttlNanos));
+  }
+
+  @Override
+  protected void doStart() {
+  }
+
+  @Override
+  protected void doStop() {
+    synchronized (schedulerLock) {
+      if (scheduler != null) {
+        scheduler.shutdownNow();
+        scheduler = null;
+      }
+    }
+  }
+
+  @Override
+  protected void doClose() {
+  }
+
+  private static class Entry {
+    private final CidrTrie addresses;
+    // Ticker time (nanos)
+    private final long expiresAt;
+
+    Entry(CidrTrie addresses, long expiresAt) {
+      this.addresses = addresses;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
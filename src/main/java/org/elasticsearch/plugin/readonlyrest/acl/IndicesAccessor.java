@@ -0,0 +1,146 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.IndicesRequest;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.plugin.readonlyrest.SecurityPermissionException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Reads and rewrites the indices of a given class of action requests.
+ * <p>
+ * The reflective lookups happen once per class, the first time it is seen: then the resolved method handles
+ * are reused by every request of that class. Requests implementing IndicesRequest (and IndicesRequest.Replaceable)
+ * go through the typed API instead.
+ */
+public class IndicesAccessor {
+  private static final ESLogger logger = Loggers.getLogger(IndicesAccessor.class);
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(String[].class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, String[].class);
+
+  private static final ConcurrentMap<Class<?>, IndicesAccessor> registry = new ConcurrentHashMap<>();
+
+  private final Class<?> requestClass;
+  private final boolean typedGetter;
+  private final boolean typedSetter;
+  // Null if not available
+  private final MethodHandle getter;
+  private final MethodHandle setter;
+
+  private IndicesAccessor(Class<?> requestClass, boolean typedGetter, boolean typedSetter, MethodHandle getter, MethodHandle setter) {
+    this.requestClass = requestClass;
+    this.typedGetter = typedGetter;
+    this.typedSetter = typedSetter;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  public static IndicesAccessor forClass(Class<? extends ActionRequest> c) {
+    IndicesAccessor a = registry.get(c);
+    if (a == null) {
+      a = resolve(c);
+      IndicesAccessor existing = registry.putIfAbsent(c, a);
+      if (existing != null) {
+        a = existing;
+      }
+    }
+    return a;
+  }
+
+  private static IndicesAccessor resolve(final Class<?> c) {
+    return AccessController.doPrivileged(
+        new PrivilegedAction<IndicesAccessor>() {
+          @Override
+          public IndicesAccessor run() {
+            boolean typedGetter = IndicesRequest.class.isAssignableFrom(c);
+            boolean typedSetter = IndicesRequest.Replaceable.class.isAssignableFrom(c);
+            MethodHandle getter = null;
+            MethodHandle setter = null;
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+              if (!typedGetter) {
+                try {
+                  Method m = c.getMethod("indices");
+                  if (m.getReturnType() == String[].class) {
+                    m.setAccessible(true);
+                    getter = lookup.unreflect(m).asType(GETTER_TYPE);
+                  }
+                } catch (NoSuchMethodException e) {
+                  logger.debug("No indices getter for request class " + c.getName());
+                }
+              }
+              if (!typedSetter) {
+                try {
+                  Field f = c.getDeclaredField("indices");
+                  if (f.getType() == String[].class) {
+                    f.setAccessible(true);
+                    setter = lookup.unreflectSetter(f).asType(SETTER_TYPE);
+                  }
+                } catch (NoSuchFieldException e) {
+                  logger.debug("No indices field for request class " + c.getName());
+                }
+              }
+            } catch (SecurityException e) {
+              throw new SecurityPermissionException("Insufficient permissions to access the indices of " + c.getName()
+                  + ". Abort! Cause: " + e.getMessage(), e);
+            } catch (IllegalAccessException e) {
+              logger.error("Cannot access the indices of " + c.getName() + ": " + e.getMessage());
+            }
+            return new IndicesAccessor(c, typedGetter, typedSetter, getter, setter);
+          }
+        });
+  }
+
+  /**
+   * @return the indices of the request, null if the request class has none
+   */
+  public String[] get(ActionRequest ar) {
+    if (typedGetter) {
+      return ((IndicesRequest) ar).indices();
+    }
+    if (getter == null) {
+      return null;
+    }
+    try {
+      return (String[]) getter.invokeExact((Object) ar);
+    } catch (Throwable e) {
+      logger.debug("Failed to discover the indices of " + requestClass.getName() + ": " + e);
+      return null;
+    }
+  }
+
+  /**
+   * @return false if the indices of this request class cannot be rewritten
+   */
+  public boolean set(ActionRequest ar, String[] indices) {
+    if (typedSetter) {
+      ((IndicesRequest.Replaceable) ar).indices(indices);
+      return true;
+    }
+    if (setter == null) {
+      return false;
+    }
+    try {
+      setter.invokeExact((Object) ar, indices);
+      return true;
+    } catch (Throwable e) {
+      logger.error("Failed to set the indices of " + requestClass.getName() + ": " + e);
+      return false;
+    }
+  }
+
+  public boolean canSet() {
+    return typedSetter || setter != null;
+  }
+}
@@ -0,0 +1,141 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import org.elasticsearch.cluster.metadata.AliasOrIndex;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.MatcherWithWildcards;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable view of the index and alias names of the cluster, as of a given version of the cluster metadata.
+ * <p>
+ * Each snapshot also records which names were added and removed since the previous one, so that whoever
+ * keeps data derived from the names can update it incrementally.
+ */
+public class IndicesSnapshot {
+  public static final long NO_VERSION = Long.MIN_VALUE;
+  private static final int MATCHES_CACHE_SIZE = 1000;
+
+  public static final IndicesSnapshot EMPTY = new IndicesSnapshot(-1, ImmutableMap.<String, Set<String>>of(), NO_VERSION,
+      ImmutableSet.<String>of(), ImmutableSet.<String>of());
+
+  private final long version;
+  // Index or alias name -> the concrete indices it points to
+  private final Map<String, Set<String>> lookup;
+
+  private final long previousVersion;
+  private final Set<String> added;
+  private final Set<String> removed;
+  // The names matched by the index patterns requested lately, the same patterns keep coming back
+  private final Cache<Set<String>, Set<String>> matches = CacheBuilder.newBuilder().maximumSize(MATCHES_CACHE_SIZE).build();
+
+  private IndicesSnapshot(long version, Map<String, Set<String>> lookup, long previousVersion, Set<String> added, Set<String> removed) {
+    this.version = version;
+    this.lookup = lookup;
+    this.previousVersion = previousVersion;
+    this.added = added;
+    this.removed = removed;
+  }
+
+  public static IndicesSnapshot fromMetaData(MetaData metaData) {
+    return fromMetaData(metaData, EMPTY);
+  }
+
+  /**
+   * Build the snapshot of this metadata, recording the names added and removed since the previous snapshot.
+   */
+  public static IndicesSnapshot fromMetaData(MetaData metaData, IndicesSnapshot previous) {
+    ImmutableMap.Builder<String, Set<String>> b = ImmutableMap.builder();
+    for (Map.Entry<String, AliasOrIndex> e : metaData.getAliasAndIndexLookup().entrySet()) {
+      ImmutableSet.Builder<String> concrete = ImmutableSet.builder();
+      for (IndexMetaData imd : e.getValue().getIndices()) {
+        concrete.add(imd.getIndex());
+      }
+      b.put(e.getKey(), concrete.build());
+    }
+    ImmutableMap<String, Set<String>> lookup = b.build();
+    Set<String> names = lookup.keySet();
+    Set<String> previousNames = previous.getIndicesAndAliases();
+    return new IndicesSnapshot(metaData.version(), lookup, previous.getVersion(),
+        ImmutableSet.copyOf(Sets.difference(names, previousNames)),
+        ImmutableSet.copyOf(Sets.difference(previousNames, names)));
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @return the version of the snapshot the added and removed names are relative to
+   */
+  public long getPreviousVersion() {
+    return previousVersion;
+  }
+
+  /**
+   * @return the index and alias names that were not in the previous snapshot
+   */
+  public Set<String> getAdded() {
+    return added;
+  }
+
+  /**
+   * @return the index and alias names of the previous snapshot that are gone
+   */
+  public Set<String> getRemoved() {
+    return removed;
+  }
+
+  /**
+   * @return all the index and alias names
+   */
+  public Set<String> getIndicesAndAliases() {
+    return lookup.keySet();
+  }
+
+  public boolean contains(String indexOrAlias) {
+    return lookup.containsKey(indexOrAlias);
+  }
+
+  /**
+   * @param patterns index or alias names, with wildcards or not
+   * @return the index and alias names matching any of the patterns, computed once per snapshot for the same patterns
+   */
+  public Set<String> match(Set<String> patterns) {
+    Set<String> key = ImmutableSet.copyOf(patterns);
+    Set<String> m = matches.getIfPresent(key);
+    if (m == null) {
+      MatcherWithWildcards matcher = new MatcherWithWildcards(key);
+      ImmutableSet.Builder<String> b = ImmutableSet.builder();
+      for (String name : lookup.keySet()) {
+        if (matcher.match(name)) {
+          b.add(name);
+        }
+      }
+      m = b.build();
+      matches.put(key, m);
+    }
+    return m;
+  }
+
+  /**
+   * @return the concrete indices behind an index or alias name, an empty set if the name is unknown
+   */
+  public Set<String> resolve(String indexOrAlias) {
+    Set<String> s = lookup.get(indexOrAlias);
+    return s == null ? ImmutableSet.<String>of() : s;
+  }
+
+  @Override
+  public String toString() {
+    return "{ version: " + version + ", indices and aliases: " + lookup.size() + ", added: " + added.size()
+        + ", removed: " + removed.size() + " }";
+  }
+}
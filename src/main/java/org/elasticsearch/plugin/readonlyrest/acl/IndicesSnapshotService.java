@@ -0,0 +1,37 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+
+/**
+ * Keeps an IndicesSnapshot of the cluster metadata, rebuilt once per metadata version and shared by all requests.
+ */
+@Singleton
+public class IndicesSnapshotService implements ClusterStateListener {
+  private final ESLogger logger = Loggers.getLogger(getClass());
+
+  private volatile IndicesSnapshot snapshot = IndicesSnapshot.EMPTY;
+
+  @Inject
+  public IndicesSnapshotService(ClusterService clusterService) {
+    clusterService.add(this);
+  }
+
+  public IndicesSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  @Override
+  public void clusterChanged(ClusterChangedEvent event) {
+    if (event.state().metaData().version() == snapshot.getVersion() && !event.metaDataChanged()) {
+      return;
+    }
+    snapshot = IndicesSnapshot.fromMetaData(event.state().metaData(), snapshot);
+    logger.debug("indices snapshot updated: " + snapshot);
+  }
+}
@@ -0,0 +1,27 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+
+/**
+ * The outcome of a request, as told by the REST filter from its request line and headers (see ACL.preCheck).
+ * It travels to the action filter in the request context, and holds for the ACL that took it only.
+ */
+public class PreDecision {
+  // Key to find the decision in the REST request context
+  public static final String CONTEXT_KEY = "readonlyrest.pre_decision";
+
+  private final ACL acl;
+  private final BlockExitResult result;
+
+  public PreDecision(ACL acl, BlockExitResult result) {
+    this.acl = acl;
+    this.result = result;
+  }
+
+  /**
+   * @return the outcome, null if the ACL in use is not the one that took it
+   */
+  public BlockExitResult getResult(ACL inUse) {
+    return inUse == acl ? result : null;
+  }
+}
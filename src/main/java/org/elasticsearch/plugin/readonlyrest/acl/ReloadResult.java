@@ -0,0 +1,104 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * The outcome of an ACL reload: the version and the size of the ACL in use afterwards, and how long it took.
+ */
+public class ReloadResult implements Streamable, ToXContent {
+  private long version;
+  private int blocks;
+  private int reusedBlocks;
+  private long tookNanos;
+  private String failure;
+
+  ReloadResult() {
+  }
+
+  ReloadResult(long version, int blocks, int reusedBlocks, long tookNanos, String failure) {
+    this.version = version;
+    this.blocks = blocks;
+    this.reusedBlocks = reusedBlocks;
+    this.tookNanos = tookNanos;
+    this.failure = failure;
+  }
+
+  public static ReloadResult readReloadResult(StreamInput in) throws IOException {
+    ReloadResult r = new ReloadResult();
+    r.readFrom(in);
+    return r;
+  }
+
+  /**
+   * @return the version of the ACL in use, it only grows when a reload succeeds
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  public int getBlocks() {
+    return blocks;
+  }
+
+  public int getReusedBlocks() {
+    return reusedBlocks;
+  }
+
+  public long getTookNanos() {
+    return tookNanos;
+  }
+
+  public boolean isFailed() {
+    return failure != null;
+  }
+
+  /**
+   * @return why the reload failed (the previous ACL is still in use), null if it succeeded
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    version = in.readVLong();
+    blocks = in.readVInt();
+    reusedBlocks = in.readVInt();
+    tookNanos = in.readVLong();
+    failure = in.readOptionalString();
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    out.writeVLong(version);
+    out.writeVInt(blocks);
+    out.writeVInt(reusedBlocks);
+    out.writeVLong(tookNanos);
+    out.writeOptionalString(failure);
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.field("reloaded", !isFailed());
+    builder.field("version", version);
+    builder.field("blocks", blocks);
+    builder.field("reused_blocks", reusedBlocks);
+    builder.field("took_nanos", tookNanos);
+    if (failure != null) {
+      builder.field("error", failure);
+    }
+    return builder;
+  }
+
+  @Override
+  public String toString() {
+    return "{ version: " + version + ", blocks: " + blocks + ", reused: " + reusedBlocks + ", took: " +
+        (tookNanos / 1000000) + "ms" + (failure == null ? "" : ", error: " + failure) + " }";
+  }
+}
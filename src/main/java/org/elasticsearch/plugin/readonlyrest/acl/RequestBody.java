@@ -0,0 +1,69 @@
+package org.elasticsearch.plugin.readonlyrest.acl;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.StreamInput;
+
+/**
+ * Read only view of a request body, backed by its BytesReference: nothing is copied unless asked for,
+ * and logging only ever looks at a bounded preview.
+ */
+public class RequestBody {
+  private static final BytesReference EMPTY = new BytesArray(new byte[0]);
+
+  private final BytesReference content;
+
+  public RequestBody(BytesReference content) {
+    this.content = content == null ? EMPTY : content;
+  }
+
+  public int length() {
+    return content.length();
+  }
+
+  public boolean isEmpty() {
+    return length() == 0;
+  }
+
+  /**
+   * @return a stream over the body, for rules that need to inspect it without materializing it
+   */
+  public StreamInput streamInput() {
+    return content.streamInput();
+  }
+
+  /**
+   * @return at most the first maxBytes of the body decoded as UTF-8, mentioning the total length if truncated
+   */
+  public String preview(int maxBytes) {
+    int length = length();
+    int n = Math.min(length, maxBytes);
+    String s;
+    try {
+      if (content.hasArray()) {
+        s = new String(content.array(), content.arrayOffset(), n, Charsets.UTF_8);
+      } else {
+        s = content.slice(0, n).toUtf8();
+      }
+    } catch (Exception e) {
+      s = null;
+    }
+    if (s == null) {
+      return "<not available>";
+    }
+    return n < length ? s + "... (" + length + " bytes)" : s;
+  }
+
+  /**
+   * @return the whole body decoded as UTF-8. Copies the body: not meant for logging.
+   */
+  public String toUtf8() {
+    return content.toUtf8();
+  }
+
+  @Override
+  public String toString() {
+    return "RequestBody{ " + length() + " bytes }";
+  }
+}
@@ -6,25 +6,14 @@ import com.google.common.collect.Sets;
 import org.elasticsearch.action.ActionRequest;
 import org.elasticsearch.action.CompositeIndicesRequest;
 import org.elasticsearch.action.IndicesRequest;
-import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
-import org.elasticsearch.index.IndexService;
-import org.elasticsearch.index.aliases.IndexAliasesService;
-import org.elasticsearch.indices.IndicesService;
-import org.elasticsearch.plugin.readonlyrest.SecurityPermissionException;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.security.AccessController;
-import java.security.PrivilegedAction;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.Set;
 import java.util.regex.Pattern;
 
@@ -42,105 +31,137 @@ public class RequestContext {
   private final static Pattern localhostRe = Pattern.compile("^(127(\\.\\d+){1,3}|[0:]+1)$");
 
   private final static String LOCALHOST = "127.0.0.1";
+  private final static byte[] LOCALHOST_BYTES = {127, 0, 0, 1};
+  // How much of the body toString() shows
+  private final static int CONTENT_PREVIEW_BYTES = 256;
 
   private final RestChannel channel;
   private final RestRequest request;
   private final String action;
   private final ActionRequest actionRequest;
   private Set<String> indices = null;
-  private String content = null;
-  private IndicesService indexService = null;
-
-  public RequestContext(RestChannel channel, RestRequest request, String action, ActionRequest actionRequest, IndicesService indicesService) {
+  private boolean indicesRewritten = false;
+  private RequestBody body = null;
+  private String remoteAddress = null;
+  private byte[] remoteAddressBytes = null;
+  private RequestCredentials credentials = null;
+  // The outcomes of the shared rules on this request, by slot, and the compiled ACL they come from
+  private byte[] ruleOutcomes = null;
+  private Object ruleOutcomesOwner = null;
+  private final IndicesSnapshot indicesSnapshot;
+
+  public RequestContext(RestChannel channel, RestRequest request, String action, ActionRequest actionRequest, IndicesSnapshot indicesSnapshot) {
     this.channel = channel;
     this.request = request;
     this.action = action;
     this.actionRequest = actionRequest;
-    this.indexService = indicesService;
+    this.indicesSnapshot = indicesSnapshot == null ? IndicesSnapshot.EMPTY : indicesSnapshot;
   }
 
   public RequestContext(RestChannel channel, RestRequest request, String action, ActionRequest actionRequest) {
-    this.channel = channel;
-    this.request = request;
-    this.action = action;
-    this.actionRequest = actionRequest;
+    this(channel, request, action, actionRequest, null);
   }
 
   public String getRemoteAddress() {
-    String remoteHost = ((InetSocketAddress) request.getRemoteAddress()).getAddress().getHostAddress();
-    // Make sure we recognize localhost even when IPV6 is involved
-    if (localhostRe.matcher(remoteHost).find()) {
-      remoteHost = LOCALHOST;
+    if (remoteAddress == null) {
+      String remoteHost = ((InetSocketAddress) request.getRemoteAddress()).getAddress().getHostAddress();
+      // Make sure we recognize localhost even when IPV6 is involved
+      if (localhostRe.matcher(remoteHost).find()) {
+        remoteHost = LOCALHOST;
+      }
+      remoteAddress = remoteHost;
     }
-    return remoteHost;
+    return remoteAddress;
   }
 
-  public String getContent() {
-    if (content == null) {
-      try {
-        content = new String(request.content().array());
-      } catch (Exception e) {
-        content = "<not available>";
+  /**
+   * @return the raw bytes of the remote address (4 for IPv4, 16 for IPv6), any loopback address is 127.0.0.1
+   */
+  public byte[] getRemoteAddressBytes() {
+    if (remoteAddressBytes == null) {
+      InetAddress address = ((InetSocketAddress) request.getRemoteAddress()).getAddress();
+      remoteAddressBytes = address.isLoopbackAddress() ? LOCALHOST_BYTES : address.getAddress();
+    }
+    return remoteAddressBytes;
+  }
+
+  /**
+   * @return the credentials of the Authorization header, parsed on first use and kept in the REST request context
+   */
+  public RequestCredentials getCredentials() {
+    if (credentials == null) {
+      Object parsed = request.getFromContext(RequestCredentials.CONTEXT_KEY);
+      if (parsed instanceof RequestCredentials) {
+        credentials = (RequestCredentials) parsed;
+      } else {
+        // Parsed once per REST request, whichever phase of the evaluation asks first
+        credentials = RequestCredentials.parse(request.header("Authorization"));
+        request.putInContext(RequestCredentials.CONTEXT_KEY, credentials);
       }
     }
-    return content;
+    return credentials;
   }
 
+  /**
+   * The outcomes of the shared rules already evaluated on this request, by slot: each distinct rule runs at most
+   * once per request, however many blocks it appears in. Starts over if asked by another owner.
+   *
+   * @param owner the compiled ACL that assigned the slots
+   * @param slots how many slots the owner has
+   */
+  public byte[] getRuleOutcomes(Object owner, int slots) {
+    if (ruleOutcomesOwner != owner || ruleOutcomes.length < slots) {
+      ruleOutcomes = new byte[slots];
+      ruleOutcomesOwner = owner;
+    }
+    return ruleOutcomes;
+  }
+
+  public RequestBody getBody() {
+    if (body == null) {
+      body = new RequestBody(request.content());
+    }
+    return body;
+  }
+
+  /**
+   * @return the whole body as a string: use getBody() to check its length or peek at it
+   */
+  public String getContent() {
+    try {
+      return getBody().toUtf8();
+    } catch (Exception e) {
+      return "<not available>";
+    }
+  }
+
+  /**
+   * @return all the index and alias names in the cluster (read only)
+   */
   public Set<String> getAvailableIndicesAndAliases() {
-    final HashSet<String> harvested = new HashSet<>();
-    final Iterator<IndexService> i = indexService.iterator();
-    AccessController.doPrivileged(
-        new PrivilegedAction<Void>() {
-          @Override
-          public Void run() {
-            while (i.hasNext()) {
-              IndexService theIndexSvc = i.next();
-              harvested.add(theIndexSvc.index().getName());
-              final IndexAliasesService aliasSvc = theIndexSvc.aliasesService();
-              try {
-                Field field = aliasSvc.getClass().getDeclaredField("aliases");
-                field.setAccessible(true);
-                ImmutableOpenMap<String, String> aliases = (ImmutableOpenMap<String, String>) field.get(aliasSvc);
-                System.out.printf(aliases.toString());
-                for (Object o : aliases.keys().toArray()) {
-                  String a = (String) o;
-                  harvested.add(a);
-                }
-                //  harvested.addAll(aliases.keys().toArray(new String[aliases.keys().size()]));
-              } catch (NoSuchFieldException e) {
-                e.printStackTrace();
-              } catch (IllegalAccessException e) {
-                e.printStackTrace();
-              }
-            }
-            return null;
-          }
-        });
-    return harvested;
+    return indicesSnapshot.getIndicesAndAliases();
+  }
+
+  public IndicesSnapshot getIndicesSnapshot() {
+    return indicesSnapshot;
   }
 
   public void setIndices(final Set<String> newIndices) {
-    AccessController.doPrivileged(
-        new PrivilegedAction<Void>() {
-          @Override
-          public Void run() {
-            try {
-              Field field = actionRequest.getClass().getDeclaredField("indices");
-              field.setAccessible(true);
-              String[] idxArray = newIndices.toArray(new String[newIndices.size()]);
-              field.set(actionRequest, idxArray);
-            } catch (NoSuchFieldException e) {
-              logger.error(ANSI_RED + " Could not set indices because: " + e.getCause() + ANSI_RESET);
-              e.printStackTrace();
-            } catch (IllegalAccessException e) {
-              logger.error(ANSI_RED + " Could not set indices because: " + e.getCause() + ANSI_RESET);
-              e.printStackTrace();
-            }
-            indices.clear();
-            indices.addAll(newIndices);
-            return null;
-          }
-        });
+    String[] idxArray = newIndices.toArray(new String[newIndices.size()]);
+    if (!IndicesAccessor.forClass(actionRequest.getClass()).set(actionRequest, idxArray)) {
+      logger.error(ANSI_RED + " Could not set indices of " + actionRequest.getClass().getName() + ANSI_RESET);
+    }
+    // newIndices might be a view on the current indices, so we refill from the array
+    indices.clear();
+    indices.addAll(Arrays.asList(idxArray));
+    indicesRewritten = true;
+  }
+
+  /**
+   * @return true if some rule has rewritten the indices of this request
+   */
+  public boolean isIndicesRewritten() {
+    return indicesRewritten;
   }
 
   public Set<String> getIndices() {
@@ -148,56 +169,28 @@ public class RequestContext {
       return indices;
     }
 
-    final String[][] out = {new String[1]};
-    AccessController.doPrivileged(
-        new PrivilegedAction<Void>() {
-          @Override
-          public Void run() {
-            String[] indices = new String[0];
-            ActionRequest ar = actionRequest;
-
-            if (ar instanceof CompositeIndicesRequest) {
-              CompositeIndicesRequest cir = (CompositeIndicesRequest) ar;
-              for (IndicesRequest ir : cir.subRequests()) {
-                indices = ObjectArrays.concat(indices, ir.indices(), String.class);
-              }
-            } else {
-              try {
-                Method m = ar.getClass().getMethod("indices");
-                if (m.getReturnType() != String[].class) {
-                  out[0] = new String[]{};
-                  return null;
-                }
-                m.setAccessible(true);
-                indices = (String[]) m.invoke(ar);
-              } catch (SecurityException e) {
-                logger.error("Can't get indices for request: " + toString());
-                throw new SecurityPermissionException("Insufficient permissions to extract the indices. Abort! Cause: " + e.getMessage(), e);
-              } catch (IllegalArgumentException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                logger.debug("Failed to discover indices associated to this request: " + this);
-              }
-            }
-
-            if (indices == null) {
-              indices = new String[0];
-            }
-
-            // De-dup
-            HashSet<String> tempSet = new HashSet<>(Arrays.asList(indices));
-            indices = tempSet.toArray(new String[tempSet.size()]);
-
-            if (logger.isDebugEnabled()) {
-              String idxs = Joiner.on(',').skipNulls().join(indices);
-              logger.debug("Discovered indices: " + idxs);
-            }
-
-            out[0] = indices;
-            return null;
-          }
-        }
-    );
-
-    indices = Sets.newHashSet(out[0]);
+    String[] found = new String[0];
+    ActionRequest ar = actionRequest;
+
+    if (ar instanceof CompositeIndicesRequest) {
+      CompositeIndicesRequest cir = (CompositeIndicesRequest) ar;
+      for (IndicesRequest ir : cir.subRequests()) {
+        found = ObjectArrays.concat(found, ir.indices(), String.class);
+      }
+    } else if (ar != null) {
+      found = IndicesAccessor.forClass(ar.getClass()).get(ar);
+    }
+
+    if (found == null) {
+      found = new String[0];
+    }
+
+    // De-dup
+    indices = Sets.newHashSet(found);
+
+    if (logger.isDebugEnabled()) {
+      logger.debug("Discovered indices: " + Joiner.on(',').skipNulls().join(indices));
+    }
 
     return indices;
   }
@@ -235,7 +228,7 @@ public class RequestContext {
         ", indices:" + idxs +
         ", M:" + request.method() +
         ", P:" + request.path() +
-        ", C:" + getContent() +
+        ", C:" + getBody().preview(CONTENT_PREVIEW_BYTES) +
         ", Headers:" + request.getHeaders() +
         "}";
   }
@@ -1,15 +1,25 @@
 package org.elasticsearch.plugin.readonlyrest.acl.blocks;
 
-import com.google.common.collect.Sets;
+import com.google.common.collect.Lists;
 import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleFactories;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleFactory;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleStats;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserVariables;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.*;
+import org.elasticsearch.plugin.readonlyrest.stats.LatencyHistogram;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -24,10 +34,32 @@ public class Block {
   private final String name;
   private final Policy policy;
   private boolean authHeaderAccepted = false;
-  private Set<Rule> conditionsToCheck = Sets.newHashSet();
+  private List<Rule> conditionsToCheck = Lists.newArrayList();
 
-  public Block(Settings s, List<Settings> userList, ESLogger logger) {
+  // The rules in registry order, and their stats in this block: the rule instances may be shared with other blocks
+  private final Rule[] rules;
+  private final RuleStats[] ruleStats;
+  // The positions of the rules in evaluation order, re-sorted every REORDER_INTERVAL checks according to the stats
+  private volatile int[] evaluationOrder;
+  private static final int REORDER_INTERVAL = 1024;
+  // Only used to trigger the re-ordering, lost updates are fine
+  private int checksSinceReorder = 0;
+
+  private final CounterMetric checks = new CounterMetric();
+  private final CounterMetric matches = new CounterMetric();
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final BlockExitResult MATCH;
+
+  // The slot of a rule that is not shared
+  public static final int NO_SLOT = -1;
+  // Outcomes of shared predicates, as stored in the memo array handed over by the compiled ACL
+  private static final byte UNKNOWN = 0;
+  private static final byte MATCHED = 1;
+  private static final byte NOT_MATCHED = 2;
+
+  public Block(Settings s, BlockContext context, ESLogger logger) {
     this.name = s.get("name");
+    this.MATCH = new BlockExitResult(this, true);
     String sPolicy = s.get("type");
     this.logger = logger;
     if (sPolicy == null) {
@@ -37,52 +69,94 @@ public class Block {
 
     policy = Block.Policy.valueOf(sPolicy.toUpperCase());
 
-    // Won't add the condition if its configuration is not found
-    try {
-      conditionsToCheck.add(new HostsRule(s));
-    } catch (RuleNotConfiguredException e) {
+    // Only the rules whose key is set are built. Identical rules are shared with the other blocks.
+    Set<String> keys = new HashSet<>();
+    for (String k : s.getAsMap().keySet()) {
+      // Lists are flattened to key.0, key.1...
+      int dot = k.indexOf('.');
+      keys.add(dot < 0 ? k : k.substring(0, dot));
     }
-    try {
-      conditionsToCheck.add(new ApiKeysRule(s));
-    } catch (RuleNotConfiguredException e) {
-    }
-    try {
-      conditionsToCheck.add(new AuthKeyRule(s));
-      authHeaderAccepted = true;
-    } catch (RuleNotConfiguredException e) {
+    for (RuleFactory factory : RuleFactories.getInstance().getAll()) {
+      if (!keys.contains(factory.getKey())) {
+        continue;
+      }
+      try {
+        Rule rule = context.share(factory.create(s, context));
+        conditionsToCheck.add(rule);
+        if (rule instanceof AuthKeyRule) {
+          authHeaderAccepted = true;
+        }
+      } catch (RuleNotConfiguredException e) {
+        // Set to nothing, i.e. an empty list
+      }
     }
-    try {
-      conditionsToCheck.add(new UriReRule(s));
-    } catch (RuleNotConfiguredException e) {
+
+    // The user variables are only as trustworthy as the authentication of the block
+    boolean authenticates = authHeaderAccepted;
+    for (Rule r : conditionsToCheck) {
+      authenticates |= r instanceof GroupsRule;
     }
-    try {
-      conditionsToCheck.add(new MaxBodyLengthRule(s));
-    } catch (RuleNotConfiguredException e) {
+    for (Rule r : conditionsToCheck) {
+      if (r.hasUserVariables() && !authenticates) {
+        throw new RuleConfigurationError("The block \"" + name + "\" refers to " + UserVariables.USER + " in its " + r.KEY +
+            " rule, so it needs an auth_key, auth_key_sha1 or groups rule.", null);
+      }
     }
-    try {
-      conditionsToCheck.add(new MethodsRule(s));
-    } catch (RuleNotConfiguredException e) {
+
+    conditionsToCheck = Collections.unmodifiableList(conditionsToCheck);
+    rules = conditionsToCheck.toArray(new Rule[conditionsToCheck.size()]);
+    ruleStats = new RuleStats[rules.length];
+    for (int i = 0; i < rules.length; i++) {
+      ruleStats[i] = new RuleStats();
     }
-    try {
-      conditionsToCheck.add(new KibanaAccessRule(s));
-    } catch (RuleNotConfiguredException e) {
+    evaluationOrder = sortedRules();
+  }
+
+  /**
+   * Rules that rewrite the request go last, so they only act once all the other rules have matched.
+   * The others are sorted by cost class first, then the most selective (highest reject rate) go first.
+   * The sort is stable, so with no stats the registry order of the rules is kept within a cost class.
+   */
+  private static int compare(Rule a, double aRejectRate, Rule b, double bRejectRate) {
+    int c = Boolean.compare(a.isRewriting(), b.isRewriting());
+    if (c != 0) {
+      return c;
     }
-    try {
-      conditionsToCheck.add(new IndicesRule(s));
-    } catch (RuleNotConfiguredException e) {
+    c = a.getCostClass().compareTo(b.getCostClass());
+    if (c != 0) {
+      return c;
     }
-    try {
-      conditionsToCheck.add(new ActionsRule(s));
-    } catch (RuleNotConfiguredException e) {
+    return Double.compare(bRejectRate, aRejectRate);
+  }
+
+  private int[] sortedRules() {
+    // Snapshot the reject rates: they keep changing while we sort
+    final double[] rejectRates = new double[rules.length];
+    Integer[] positions = new Integer[rules.length];
+    for (int i = 0; i < rules.length; i++) {
+      rejectRates[i] = ruleStats[i].getRejectRate();
+      positions[i] = i;
     }
-    try {
-      conditionsToCheck.add(new AuthKeySha1Rule(s));
-      authHeaderAccepted = true;
-    } catch (RuleNotConfiguredException e) {
+    Arrays.sort(positions, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer a, Integer b) {
+        return Block.compare(rules[a], rejectRates[a], rules[b], rejectRates[b]);
+      }
+    });
+    int[] sorted = new int[rules.length];
+    for (int i = 0; i < positions.length; i++) {
+      sorted[i] = positions[i];
     }
-    try {
-      conditionsToCheck.add(new GroupsRule(s, userList));
-    } catch (RuleNotConfiguredException e) {
+    return sorted;
+  }
+
+  private void reorder() {
+    int[] sorted = sortedRules();
+    if (!Arrays.equals(sorted, evaluationOrder)) {
+      evaluationOrder = sorted;
+      if (logger.isDebugEnabled()) {
+        logger.debug("[" + name + "] new rules evaluation order: " + getStats());
+      }
     }
   }
 
@@ -98,6 +172,48 @@ public class Block {
     return authHeaderAccepted;
   }
 
+  /**
+   * The rules of this block, in the current evaluation order.
+   */
+  public List<Rule> getRules() {
+    int[] order = evaluationOrder;
+    Rule[] sorted = new Rule[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = rules[order[i]];
+    }
+    return Collections.unmodifiableList(Arrays.asList(sorted));
+  }
+
+  /**
+   * @return true if an indices rule of this block lists this index by its name, not through a wildcard
+   */
+  public boolean namesIndex(String index) {
+    for (Rule r : conditionsToCheck) {
+      if (r instanceof IndicesRule && ((IndicesRule) r).namesIndex(index)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The rules of this block in registry order, which does not change: the positions the slots of check() refer to.
+   */
+  public List<Rule> getRulesInRegistryOrder() {
+    return conditionsToCheck;
+  }
+
+  public BlockStats getStats() {
+    int[] order = evaluationOrder;
+    Rule[] sortedRules = new Rule[order.length];
+    RuleStats[] sortedStats = new RuleStats[order.length];
+    for (int i = 0; i < order.length; i++) {
+      sortedRules[i] = rules[order[i]];
+      sortedStats[i] = ruleStats[order[i]];
+    }
+    return new BlockStats(name, checks.count(), matches.count(), latency.snapshot(), sortedRules, sortedStats);
+  }
+
   public enum Policy {
     ALLOW, FORBID;
 
@@ -112,25 +228,120 @@ public class Block {
   }
 
   /**
-   * Check all the conditions of this rule and return a rule exit result
+   * Check the conditions of this block in order and return a block exit result.
+   * The evaluation stops at the first rule that does not match.
+   */
+  public BlockExitResult check(RequestContext rc) {
+    return check(rc, null, null);
+  }
+
+  /**
+   * Same as check(rc), but the outcome of the rules bound to a slot is looked up in (and recorded to)
+   * the given memo, so the blocks sharing a rule evaluate it only once per request.
    *
+   * @param slots the slot of each rule in registry order (or NO_SLOT), as given out by the compiled ACL
    */
+  public BlockExitResult check(RequestContext rc, byte[] memo, int[] slots) {
+    long start = System.nanoTime();
+    checks.inc();
+    if (++checksSinceReorder >= REORDER_INTERVAL) {
+      checksSinceReorder = 0;
+      reorder();
+    }
+    for (int i : evaluationOrder) {
+      if (!matches(rules[i], ruleStats[i], rc, memo, slots, i)) {
+        latency.record(System.nanoTime() - start);
+        if (logger.isDebugEnabled()) {
+          logger.debug(ANSI_YELLOW + "[" + name + "] the request matches no rules in this block: " + rc + ANSI_RESET);
+        }
+        return BlockExitResult.NO_MATCH;
+      }
+    }
+    latency.record(System.nanoTime() - start);
+    matches.inc();
+    logger.debug(ANSI_CYAN + "matched " + this + ANSI_RESET);
+    return MATCH;
+  }
 
-  public BlockExitResult check(RequestContext rc) {
-    boolean match = true;
-    for (Rule condition : conditionsToCheck) {
-      // Exit at the first rule that matches the request
-      RuleExitResult condExitResult = condition.match(rc);
-      // a block matches if ALL rules match
-      match &= condExitResult.isMatch();
+  /**
+   * Judge this block on the request line and the headers only, without touching the stats.
+   * Runs on the network threads: the expensive rules (i.e. hashing credentials) are not evaluated,
+   * and taken as a possible match.
+   *
+   * @return the body length limit of this block (Long.MAX_VALUE if none), or -1 if the rules
+   * that only look at the request line and the headers already reject the request
+   */
+  public long bodyLengthLimit(RequestContext rc) {
+    long limit = Long.MAX_VALUE;
+    for (int i : evaluationOrder) {
+      Rule condition = rules[i];
+      if (condition instanceof MaxBodyLengthRule) {
+        limit = ((MaxBodyLengthRule) condition).getMaxBodyLength();
+      }
+      else if (condition.isDecidedByHeaders() && condition.getCostClass() != Rule.CostClass.EXPENSIVE
+          && !condition.match(rc).isMatch()) {
+        return -1;
+      }
     }
-    if (match) {
-      logger.debug(ANSI_CYAN + "matched " + this + ANSI_RESET);
-      return new BlockExitResult(this, true);
+    return limit;
+  }
+
+  /**
+   * What the rules that only look at the request line and the headers tell about this block, see preCheck().
+   */
+  public enum PreCheck {
+    // Some of these rules reject the request
+    REJECTED,
+    // They accept it, the other rules will tell
+    POSSIBLE,
+    // They accept it, and there are no other rules: the block matches whatever the action
+    CERTAIN
+  }
+
+  /**
+   * Judge this block on the request line and the headers only, before the action request is built.
+   * The outcomes of the shared rules are recorded to the memo as in check(), the stats of the block are untouched.
+   */
+  public PreCheck preCheck(RequestContext rc, byte[] memo, int[] slots) {
+    boolean certain = true;
+    for (int i : evaluationOrder) {
+      if (!rules[i].isDecidedByHeaders()) {
+        certain = false;
+      }
+      else if (!matches(rules[i], ruleStats[i], rc, memo, slots, i)) {
+        return PreCheck.REJECTED;
+      }
     }
-    logger.debug(ANSI_YELLOW + "[" + name + "] the request matches no rules in this block: " + rc + ANSI_RESET);
+    return certain ? PreCheck.CERTAIN : PreCheck.POSSIBLE;
+  }
+
+  /**
+   * @return the result of check() when this block matches
+   */
+  public BlockExitResult getMatchResult() {
+    return MATCH;
+  }
+
+  private static boolean matches(Rule condition, RuleStats stats, RequestContext rc, byte[] memo, int[] slots, int position) {
+    int slot = slots == null ? NO_SLOT : slots[position];
+    if (memo == null || slot == NO_SLOT) {
+      return evaluate(condition, stats, rc);
+    }
+    if (memo[slot] == UNKNOWN) {
+      memo[slot] = evaluate(condition, stats, rc) ? MATCHED : NOT_MATCHED;
+      return memo[slot] == MATCHED;
+    }
+    // Another block evaluated it: it still counts in the reject rate of this block
+    boolean match = memo[slot] == MATCHED;
+    stats.record(match);
+    return match;
+  }
 
-    return BlockExitResult.NO_MATCH;
+  private static boolean evaluate(Rule condition, RuleStats stats, RequestContext rc) {
+    long start = System.nanoTime();
+    boolean match = condition.match(rc).isMatch();
+    stats.record(match, System.nanoTime() - start);
+    return match;
   }
 
   @Override
@@ -0,0 +1,75 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks;
+
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserVariables;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.DEFAULT_USER_VARIABLES_CACHE_MAX_SIZE;
+import static org.elasticsearch.plugin.readonlyrest.ConfigurationHelper.DEFAULT_USER_VARIABLES_CACHE_TTL;
+
+/**
+ * What the blocks of an ACL share besides their own settings: the users, the caches used by the rules,
+ * the resolution of the user variables, and the rules themselves when several blocks configure the same one.
+ */
+public class BlockContext {
+  private final UserRegistry users;
+  private final DnsCache dnsCache;
+  private final AuthCache authCache;
+  private final UserVariables userVariables;
+  // The rules built so far, by signature
+  private final Map<String, Rule> rules;
+
+  public BlockContext(UserRegistry users, DnsCache dnsCache, AuthCache authCache) {
+    this(users, dnsCache, authCache, new HashMap<String, Rule>(), new UserVariables(DEFAULT_USER_VARIABLES_CACHE_MAX_SIZE,
+        DEFAULT_USER_VARIABLES_CACHE_TTL.millis()));
+  }
+
+  /**
+   * @param rules the rules the blocks may share, by signature (updated as blocks get built)
+   */
+  public BlockContext(UserRegistry users, DnsCache dnsCache, AuthCache authCache, Map<String, Rule> rules,
+                      UserVariables userVariables) {
+    this.users = users;
+    this.dnsCache = dnsCache;
+    this.authCache = authCache;
+    this.rules = rules;
+    this.userVariables = userVariables;
+  }
+
+  /**
+   * Hash-consing of the rules: a block gets the instance already built with the same signature, if any, so
+   * identical rules across blocks are one object, evaluated once per request. Rewriting rules are never shared.
+   */
+  public Rule share(Rule rule) {
+    if (rule.isRewriting()) {
+      return rule;
+    }
+    Rule shared = rules.get(rule.getSignature());
+    if (shared != null) {
+      return shared;
+    }
+    rules.put(rule.getSignature(), rule);
+    return rule;
+  }
+
+  public UserRegistry getUsers() {
+    return users;
+  }
+
+  public DnsCache getDnsCache() {
+    return dnsCache;
+  }
+
+  public AuthCache getAuthCache() {
+    return authCache;
+  }
+
+  public UserVariables getUserVariables() {
+    return userVariables;
+  }
+}
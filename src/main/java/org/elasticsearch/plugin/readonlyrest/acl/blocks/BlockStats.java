@@ -0,0 +1,204 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleStats;
+import org.elasticsearch.plugin.readonlyrest.stats.HistogramSnapshot;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point in time view of the counters of a block, with its rules in the evaluation order chosen so far.
+ */
+public class BlockStats implements Streamable, ToXContent {
+  private String name;
+  private long checks;
+  private long matches;
+  private HistogramSnapshot latency;
+  private List<RuleEntry> rules;
+
+  BlockStats() {
+  }
+
+  /**
+   * @param ruleStats the stats of the rules in this block, in the same order as the rules
+   */
+  BlockStats(String name, long checks, long matches, HistogramSnapshot latency, Rule[] evaluationOrder, RuleStats[] ruleStats) {
+    this.name = name;
+    this.checks = checks;
+    this.matches = matches;
+    this.latency = latency;
+    List<RuleEntry> tmp = new ArrayList<>(evaluationOrder.length);
+    for (int i = 0; i < evaluationOrder.length; i++) {
+      Rule r = evaluationOrder[i];
+      tmp.add(new RuleEntry(r.KEY, r.getCostClass(), ruleStats[i].getEvaluated(), ruleStats[i].getRejected(),
+          ruleStats[i].getLatency().snapshot()));
+    }
+    this.rules = Collections.unmodifiableList(tmp);
+  }
+
+  private BlockStats(String name, long checks, long matches, HistogramSnapshot latency, List<RuleEntry> rules) {
+    this.name = name;
+    this.checks = checks;
+    this.matches = matches;
+    this.latency = latency;
+    this.rules = Collections.unmodifiableList(rules);
+  }
+
+  public static BlockStats readBlockStats(StreamInput in) throws IOException {
+    BlockStats s = new BlockStats();
+    s.readFrom(in);
+    return s;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getChecks() {
+    return checks;
+  }
+
+  public long getMatches() {
+    return matches;
+  }
+
+  public HistogramSnapshot getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the rules, in evaluation order
+   */
+  public List<RuleEntry> getRules() {
+    return rules;
+  }
+
+  /**
+   * Add up the counters of the same block on another node. The rules are matched by key.
+   */
+  public BlockStats merge(BlockStats other) {
+    Map<String, RuleEntry> others = new HashMap<>();
+    for (RuleEntry r : other.rules) {
+      others.put(r.key, r);
+    }
+    List<RuleEntry> merged = new ArrayList<>(rules.size());
+    for (RuleEntry r : rules) {
+      RuleEntry o = others.get(r.key);
+      merged.add(o == null ? r : new RuleEntry(r.key, r.costClass, r.evaluated + o.evaluated, r.rejected + o.rejected,
+          r.latency.merge(o.latency)));
+    }
+    return new BlockStats(name, checks + other.checks, matches + other.matches, latency.merge(other.latency), merged);
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    name = in.readOptionalString();
+    checks = in.readVLong();
+    matches = in.readVLong();
+    latency = HistogramSnapshot.readHistogramSnapshot(in);
+    int size = in.readVInt();
+    List<RuleEntry> tmp = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      tmp.add(new RuleEntry(in.readString(), Rule.CostClass.valueOf(in.readString()), in.readVLong(), in.readVLong(),
+          HistogramSnapshot.readHistogramSnapshot(in)));
+    }
+    rules = Collections.unmodifiableList(tmp);
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    out.writeOptionalString(name);
+    out.writeVLong(checks);
+    out.writeVLong(matches);
+    latency.writeTo(out);
+    out.writeVInt(rules.size());
+    for (RuleEntry r : rules) {
+      out.writeString(r.key);
+      out.writeString(r.costClass.name());
+      out.writeVLong(r.evaluated);
+      out.writeVLong(r.rejected);
+      r.latency.writeTo(out);
+    }
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.startObject();
+    builder.field("name", name);
+    builder.field("checks", checks);
+    builder.field("matches", matches);
+    builder.startObject("latency");
+    latency.toXContent(builder, params);
+    builder.endObject();
+    builder.startArray("rules");
+    for (RuleEntry r : rules) {
+      builder.startObject();
+      builder.field("rule", r.key);
+      builder.field("cost_class", r.costClass.name());
+      builder.field("evaluated", r.evaluated);
+      builder.field("rejected", r.rejected);
+      builder.startObject("latency");
+      r.latency.toXContent(builder, params);
+      builder.endObject();
+      builder.endObject();
+    }
+    builder.endArray();
+    return builder.endObject();
+  }
+
+  @Override
+  public String toString() {
+    return "{ block: " + name + ", checks: " + checks + ", matches: " + matches + ", order: " + rules + " }";
+  }
+
+  public static class RuleEntry {
+    private final String key;
+    private final Rule.CostClass costClass;
+    private final long evaluated;
+    private final long rejected;
+    private final HistogramSnapshot latency;
+
+    RuleEntry(String key, Rule.CostClass costClass, long evaluated, long rejected, HistogramSnapshot latency) {
+      this.key = key;
+      this.costClass = costClass;
+      this.evaluated = evaluated;
+      this.rejected = rejected;
+      this.latency = latency;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public Rule.CostClass getCostClass() {
+      return costClass;
+    }
+
+    public long getEvaluated() {
+      return evaluated;
+    }
+
+    public long getRejected() {
+      return rejected;
+    }
+
+    public HistogramSnapshot getLatency() {
+      return latency;
+    }
+
+    @Override
+    public String toString() {
+      return key + "(" + costClass + ", rejected " + rejected + "/" + evaluated + ")";
+    }
+  }
+}
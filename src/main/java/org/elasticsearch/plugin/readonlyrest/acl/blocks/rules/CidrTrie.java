@@ -0,0 +1,105 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import com.google.common.net.InetAddresses;
+
+import java.util.Arrays;
+
+/**
+ * A set of IPv4 and IPv6 networks (address/prefix length), stored as a binary trie over the address bits.
+ * <p>
+ * Looking up an address walks at most 32 (IPv4) or 128 (IPv6) nodes and allocates nothing. Addresses are
+ * raw bytes in network order, as returned by InetAddress.getAddress(): 4 bytes for IPv4, 16 for IPv6.
+ */
+public class CidrTrie {
+  private static final int V4_ROOT = 0;
+  private static final int V6_ROOT = 1;
+
+  // Node n has children[2n] (bit 0) and children[2n + 1] (bit 1). 0 means no child: the roots are nobody's child.
+  private int[] children = new int[64];
+  private boolean[] terminal = new boolean[32];
+  private int nodesCount = 2;
+  private int networksCount = 0;
+
+  /**
+   * Parse an IP literal, with an optional "/prefix length" suffix, without ever resolving names.
+   *
+   * @throws IllegalArgumentException if it is not an IPv4 or IPv6 network
+   */
+  public void add(String network) {
+    int pos = network.indexOf('/');
+    String addr = pos < 0 ? network : network.substring(0, pos);
+    byte[] bytes = InetAddresses.forString(addr).getAddress();
+    int prefixLength = pos < 0 ? bytes.length * 8 : Integer.parseInt(network.substring(pos + 1));
+    add(bytes, prefixLength);
+  }
+
+  public void add(byte[] address, int prefixLength) {
+    if (address.length != 4 && address.length != 16) {
+      throw new IllegalArgumentException("not an IPv4 or IPv6 address: " + Arrays.toString(address));
+    }
+    if (prefixLength < 0 || prefixLength > address.length * 8) {
+      throw new IllegalArgumentException("invalid prefix length: " + prefixLength);
+    }
+    int node = address.length == 4 ? V4_ROOT : V6_ROOT;
+    for (int i = 0; i < prefixLength; i++) {
+      int child = 2 * node + bit(address, i);
+      if (children[child] == 0) {
+        // newNode() may grow the arrays: don't index them before it returns
+        int created = newNode();
+        children[child] = created;
+      }
+      node = children[child];
+    }
+    terminal[node] = true;
+    networksCount++;
+  }
+
+  private int newNode() {
+    if (nodesCount == terminal.length) {
+      terminal = Arrays.copyOf(terminal, nodesCount * 2);
+      children = Arrays.copyOf(children, nodesCount * 4);
+    }
+    return nodesCount++;
+  }
+
+  private static int bit(byte[] address, int i) {
+    return (address[i >> 3] >> (7 - (i & 7))) & 1;
+  }
+
+  /**
+   * @return true if the address belongs to at least one of the networks
+   */
+  public boolean contains(byte[] address) {
+    int node;
+    if (address.length == 4) {
+      node = V4_ROOT;
+    } else if (address.length == 16) {
+      node = V6_ROOT;
+    } else {
+      return false;
+    }
+    if (terminal[node]) {
+      return true;
+    }
+    int bits = address.length * 8;
+    for (int i = 0; i < bits; i++) {
+      node = children[2 * node + bit(address, i)];
+      if (node == 0) {
+        return false;
+      }
+      if (terminal[node]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public boolean isEmpty() {
+    return networksCount == 0;
+  }
+
+  @Override
+  public String toString() {
+    return "CidrTrie{ networks: " + networksCount + ", nodes: " + nodesCount + " }";
+  }
+}
@@ -7,11 +7,11 @@ import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
 
-import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by sscarduzio on 02/04/2016.
@@ -21,26 +21,22 @@ public class MatcherWithWildcards {
   private final static ESLogger logger = Loggers.getLogger(MatcherWithWildcards.class);
 
   protected Set<String> allMatchers = Sets.newHashSet();
-  protected Set<Pattern> wildcardMatchers = Sets.newHashSet();;
-  private static Set<String> empty = new HashSet<>(0);
+  // All the patterns with wildcards, compiled together. Null if there are none.
+  protected WildcardAutomaton wildcardMatchers;
 
   public Set<String> getMatchers() {
     return allMatchers;
   }
 
   public MatcherWithWildcards(Set<String> matchers){
+    List<String> wildcards = Lists.newArrayList();
     for (String a: matchers) {
       a = normalizePlusAndMinusIndex(a);
       if (ConfigurationHelper.isNullOrEmpty(a)) {
         continue;
       }
       if (a.contains("*")) {
-        // Patch the simple star wildcard to become a regex: ("*" -> ".*")
-        String regex = ("\\Q" + a + "\\E").replace("*", "\\E.*\\Q");
-
-        // Pre-compile the regex pattern matcher to validate the regex
-        // AND faster matching later on.
-        wildcardMatchers.add(Pattern.compile(regex));
+        wildcards.add(a);
 
         // Let'ReadOnlySettingParser match this also literally
         allMatchers.add(a);
@@ -49,6 +45,9 @@ public class MatcherWithWildcards {
         allMatchers.add(a.trim());
       }
     }
+    if (!wildcards.isEmpty()) {
+      wildcardMatchers = new WildcardAutomaton(wildcards);
+    }
   }
 
   public static MatcherWithWildcards fromSettings(Settings s, String key) throws RuleNotConfiguredException {
@@ -97,14 +96,8 @@ public class MatcherWithWildcards {
       return matchable;
     }
 
-    for (Pattern p : wildcardMatchers) {
-      Matcher m = p.matcher(matchable);
-      if (m == null) {
-        continue;
-      }
-      if (m.find()) {
-        return matchable;
-      }
+    if (wildcardMatchers != null && wildcardMatchers.matches(matchable)) {
+      return matchable;
     }
 
     return null;
@@ -114,16 +107,59 @@ public class MatcherWithWildcards {
     return matchWithResult(s) != null;
   }
 
+  /**
+   * @return true if every element of the haystack matches
+   */
+  public boolean matchesAll(Collection<String> haystack) {
+    for (String s : haystack) {
+      if (!match(s)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if at least one element of the haystack matches
+   */
+  public boolean matchesAny(Collection<String> haystack) {
+    for (String s : haystack) {
+      if (match(s)) {
+        return true;
+      }
+    }
+    return false;
+  }
 
+  /**
+   * The returned set is read only: it may be the haystack itself, if all of it matches.
+   * A new set is only allocated when part of the haystack matches.
+   */
   public Set<String> filter(Set<String> haystack){
-    if(haystack.isEmpty()) return empty;
-    Set<String> res = Sets.newHashSet();
+    if(haystack.isEmpty()) return Collections.emptySet();
+    Set<String> res = null;
+    int seen = 0;
     for(String s: haystack){
-      if(match(s)){
+      boolean matches = match(s);
+      if (res == null) {
+        if (matches) {
+          seen++;
+          continue;
+        }
+        // First miss: from now on we need a separate set
+        res = Sets.newHashSetWithExpectedSize(haystack.size());
+        Iterator<String> it = haystack.iterator();
+        for (int i = 0; i < seen; i++) {
+          res.add(it.next());
+        }
+      } else if (matches) {
         res.add(s);
       }
     }
-    return res;
+    if (res == null) {
+      return Collections.unmodifiableSet(haystack);
+    }
+    return res.isEmpty() ? Collections.<String>emptySet() : res;
   }
 
 }
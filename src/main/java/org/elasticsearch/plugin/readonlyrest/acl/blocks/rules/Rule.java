@@ -5,16 +5,32 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
 
+import java.util.Arrays;
+
 /**
  * Created by sscarduzio on 13/02/2016.
  */
 abstract public class Rule {
+  /**
+   * Static estimate of how much evaluating a rule costs, cheaper rules get evaluated first.
+   */
+  public enum CostClass {
+    // Compares a header or a request line field with a few values
+    CHEAP,
+    // Pattern matching, address parsing, reflection on the action request
+    MODERATE,
+    // Hashing, decoding credentials, scanning users or indices
+    EXPENSIVE
+  }
+
   private Block.Policy policy = null;
   final public String KEY;
 
   protected RuleExitResult MATCH;
   protected RuleExitResult NO_MATCH;
 
+  private final String signature;
+
   public Rule(Settings s) {
     KEY = CaseFormat.LOWER_CAMEL.to(
         CaseFormat.LOWER_UNDERSCORE,
@@ -22,6 +38,12 @@ abstract public class Rule {
     );
     MATCH = new RuleExitResult(true, this);
     NO_MATCH = new RuleExitResult(false, this);
+
+    StringBuilder sb = new StringBuilder(getClass().getName());
+    for (String k : getSettingsKeys()) {
+      sb.append('|').append(k).append('=').append(Arrays.toString(s.getAsArray(k)));
+    }
+    signature = sb.toString();
   }
 
   public abstract RuleExitResult match(RequestContext rc);
@@ -30,4 +52,46 @@ abstract public class Rule {
     return policy;
   }
 
+  /**
+   * The settings keys this rule reads its configuration from. Only used to derive the signature,
+   * so it must not depend on subclass fields.
+   */
+  protected String[] getSettingsKeys() {
+    return new String[]{KEY};
+  }
+
+  /**
+   * Rules of the same class built from the same configuration values share a signature,
+   * and are bound to take the same decision on the same request.
+   */
+  public String getSignature() {
+    return signature;
+  }
+
+  public CostClass getCostClass() {
+    return CostClass.MODERATE;
+  }
+
+  /**
+   * Rules that rewrite the request (i.e. the indices) are evaluated after all the others, and their
+   * outcome is never shared with other blocks.
+   */
+  public boolean isRewriting() {
+    return false;
+  }
+
+  /**
+   * Rules whose values refer to user variables (see UserVariables) need the block to authenticate the user.
+   */
+  public boolean hasUserVariables() {
+    return false;
+  }
+
+  /**
+   * Rules that only look at the request line and the headers can be evaluated before the body is received.
+   */
+  public boolean isDecidedByHeaders() {
+    return false;
+  }
+
 }
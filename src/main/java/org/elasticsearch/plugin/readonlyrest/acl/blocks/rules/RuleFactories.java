@@ -0,0 +1,135 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The rule factories by key: the built in rules, then the ones found as services by the class loader of the
+ * plugin. A block only builds the rules whose keys it has, in this order (the order of the rules of the same
+ * cost class, until the stats tell better).
+ */
+public class RuleFactories {
+  private static final ESLogger logger = Loggers.getLogger(RuleFactories.class);
+
+  private static final RuleFactory[] BUILT_IN = {
+      new RuleFactory("hosts") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new HostsRule(s, context.getDnsCache());
+        }
+      },
+      new RuleFactory("api_keys") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new ApiKeysRule(s);
+        }
+      },
+      new RuleFactory("auth_key") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new AuthKeyRule(s, context.getAuthCache());
+        }
+      },
+      new RuleFactory("uri_re") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new UriReRule(s);
+        }
+      },
+      new RuleFactory("maxBodyLength") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new MaxBodyLengthRule(s);
+        }
+      },
+      new RuleFactory("methods") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new MethodsRule(s);
+        }
+      },
+      new RuleFactory("kibana_access") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new KibanaAccessRule(s);
+        }
+      },
+      new RuleFactory("indices") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new IndicesRule(s, context.getUserVariables(), context.getAuthCache());
+        }
+      },
+      new RuleFactory("actions") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new ActionsRule(s);
+        }
+      },
+      new RuleFactory("auth_key_sha1") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new AuthKeySha1Rule(s, context.getAuthCache());
+        }
+      },
+      new RuleFactory("groups") {
+        @Override
+        public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+          return new GroupsRule(s, context.getUsers());
+        }
+      },
+  };
+
+  private static final RuleFactories INSTANCE = new RuleFactories(ServiceLoader.load(RuleFactory.class, RuleFactory.class.getClassLoader()));
+
+  private final Map<String, RuleFactory> byKey = new LinkedHashMap<>();
+  private final List<RuleFactory> all;
+
+  RuleFactories(Iterable<RuleFactory> plugged) {
+    for (RuleFactory f : BUILT_IN) {
+      byKey.put(f.getKey(), f);
+    }
+    List<String> pluggedKeys = new ArrayList<>();
+    for (RuleFactory f : plugged) {
+      if (byKey.containsKey(f.getKey())) {
+        throw new RuleConfigurationError("Two rules are configured by the key \"" + f.getKey() + "\": "
+            + byKey.get(f.getKey()).getClass().getName() + " and " + f.getClass().getName(), null);
+      }
+      byKey.put(f.getKey(), f);
+      pluggedKeys.add(f.getKey());
+    }
+    if (!pluggedKeys.isEmpty()) {
+      logger.info("Plugged in rules: " + pluggedKeys);
+    }
+    all = Collections.unmodifiableList(new ArrayList<>(byKey.values()));
+  }
+
+  public static RuleFactories getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the factory of the rule configured by the key, null if none
+   */
+  public RuleFactory get(String key) {
+    return byKey.get(key);
+  }
+
+  /**
+   * @return all the factories, in the order the blocks build their rules
+   */
+  public List<RuleFactory> getAll() {
+    return all;
+  }
+}
@@ -0,0 +1,35 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockContext;
+
+/**
+ * Builds the rule configured by a given key of the block settings. Only called when the block has the key.
+ * <p>
+ * Other rules can be plugged in as services: list the implementations in
+ * META-INF/services/org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleFactory (see RuleFactories).
+ */
+public abstract class RuleFactory {
+  private final String key;
+
+  protected RuleFactory(String key) {
+    this.key = key;
+  }
+
+  /**
+   * @return the key of the block settings this rule is configured by, i.e. "hosts"
+   */
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @throws RuleNotConfiguredException if the key has no usable value, i.e. an empty list
+   */
+  public abstract Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException;
+
+  @Override
+  public String toString() {
+    return key;
+  }
+}
@@ -0,0 +1,46 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.plugin.readonlyrest.stats.LatencyHistogram;
+
+/**
+ * Runtime counters of a rule in a block: how many times it was evaluated, how many times it rejected the request,
+ * and how long it took. The outcomes taken from the memo of another block are counted, but not timed.
+ */
+public class RuleStats {
+  private final CounterMetric evaluated = new CounterMetric();
+  private final CounterMetric rejected = new CounterMetric();
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  public void record(boolean match, long nanos) {
+    record(match);
+    latency.record(nanos);
+  }
+
+  public void record(boolean match) {
+    evaluated.inc();
+    if (!match) {
+      rejected.inc();
+    }
+  }
+
+  public long getEvaluated() {
+    return evaluated.count();
+  }
+
+  public long getRejected() {
+    return rejected.count();
+  }
+
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return the fraction of evaluations that ended with a rejection, 0 if never evaluated
+   */
+  public double getRejectRate() {
+    long e = evaluated.count();
+    return e == 0 ? 0 : (double) rejected.count() / e;
+  }
+}
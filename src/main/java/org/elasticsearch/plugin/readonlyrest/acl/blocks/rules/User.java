@@ -3,6 +3,7 @@ package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
 import java.util.Arrays;
 import java.util.List;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeyRule;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeySha1Rule;
 
@@ -15,13 +16,13 @@ public class User {
   private AuthKeyRule authKeyRule;
   private final List<String> groups;
 
-  public User(Settings userProperties) throws UserNotConfiguredException {
+  public User(Settings userProperties, AuthCache authCache) throws UserNotConfiguredException {
     this.username = userProperties.get("username");
     try {
-      this.authKeyRule = new AuthKeyRule(userProperties);
+      this.authKeyRule = new AuthKeyRule(userProperties, authCache);
     } catch (RuleNotConfiguredException e) {
       try {
-        this.authKeyRule = new AuthKeySha1Rule(userProperties);
+        this.authKeyRule = new AuthKeySha1Rule(userProperties, authCache);
       } catch (RuleNotConfiguredException e2) {
         throw new UserNotConfiguredException();
       }
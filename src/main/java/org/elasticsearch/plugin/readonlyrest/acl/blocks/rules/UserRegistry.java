@@ -0,0 +1,96 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.AuthKeySha1Rule;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All the users of the ACL, built once and shared by the blocks.
+ * <p>
+ * Users are found by their credentials with a hash lookup: by Basic auth token for the clear text keys,
+ * by SHA-1 digest for the hashed ones. Group names are interned as bit positions, so the groups of a
+ * user are a bit set, and checking the membership to any of some groups is a bitwise AND.
+ */
+public class UserRegistry {
+  private final AuthCache authCache;
+  private final Map<String, Integer> groupIds = new HashMap<>();
+  // Credentials -> groups of the users with those credentials
+  private final Map<String, BitSet> byToken = new HashMap<>();
+  private final Map<String, BitSet> bySha1 = new HashMap<>();
+
+  public UserRegistry(List<Settings> userList, AuthCache authCache) {
+    this.authCache = authCache;
+    for (Settings userProperties : userList) {
+      User user;
+      try {
+        user = new User(userProperties, authCache);
+      } catch (UserNotConfiguredException e) {
+        continue;
+      }
+      Map<String, BitSet> index = user.getAuthKeyRule() instanceof AuthKeySha1Rule ? bySha1 : byToken;
+      BitSet groups = index.get(user.getAuthKeyRule().getAuthKey());
+      if (groups == null) {
+        groups = new BitSet();
+        index.put(user.getAuthKeyRule().getAuthKey(), groups);
+      }
+      // Users sharing the same credentials get all their groups merged
+      for (String g : user.getGroups()) {
+        Integer id = groupIds.get(g);
+        if (id == null) {
+          id = groupIds.size();
+          groupIds.put(g, id);
+        }
+        groups.set(id);
+      }
+    }
+  }
+
+  /**
+   * @return the groups known to the registry among these, as a bit set
+   */
+  public BitSet groupsMask(Collection<String> groups) {
+    BitSet mask = new BitSet();
+    for (String g : groups) {
+      Integer id = groupIds.get(g);
+      if (id != null) {
+        mask.set(id);
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * @return the groups of the user with these credentials (do not modify), null if there is no such user
+   */
+  public BitSet groupsOf(RequestCredentials credentials) {
+    String token = credentials.getBasicToken();
+    if (token == null) {
+      return null;
+    }
+    BitSet groups = byToken.get(token);
+    if (groups != null || bySha1.isEmpty()) {
+      return groups;
+    }
+    AuthCache.Credentials decoded = credentials.getDecoded(authCache);
+    groups = decoded == null ? null : bySha1.get(decoded.getSha1());
+    if (groups != null) {
+      credentials.verified(authCache);
+    }
+    return groups;
+  }
+
+  public int getUsersCount() {
+    return byToken.size() + bySha1.size();
+  }
+
+  public int getGroupsCount() {
+    return groupIds.size();
+  }
+}
@@ -0,0 +1,71 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The variables rule values can refer to, taken from the identity the block authenticated: "@{user}" is the
+ * user name of the Basic credentials. So one block can serve every tenant, i.e. indices: ["@{user}_*"].
+ * <p>
+ * A rule resolves its values once per user, and keeps them in a bounded cache of its own.
+ */
+public class UserVariables {
+  public static final String USER = "@{user}";
+
+  private final int cacheMaxSize;
+  private final long cacheTtlMillis;
+
+  public UserVariables(int cacheMaxSize, long cacheTtlMillis) {
+    this.cacheMaxSize = cacheMaxSize;
+    this.cacheTtlMillis = cacheTtlMillis;
+  }
+
+  public static boolean hasVariables(Iterable<String> values) {
+    for (String v : values) {
+      if (v.contains(USER)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the user the variables stand for, null if there is none. A name that would widen the patterns
+   * it is put in (i.e. "*") is refused.
+   */
+  public static String user(RequestContext rc, AuthCache authCache) {
+    AuthCache.Credentials credentials = rc.getCredentials().getDecoded(authCache);
+    if (credentials == null) {
+      return null;
+    }
+    String user = credentials.getUser();
+    if (user == null || user.isEmpty() || user.contains("*") || user.contains(",")) {
+      return null;
+    }
+    return user;
+  }
+
+  public static String[] resolve(Iterable<String> values, String user) {
+    List<String> resolved = new ArrayList<>();
+    for (String v : values) {
+      resolved.add(v.replace(USER, user));
+    }
+    return resolved.toArray(new String[resolved.size()]);
+  }
+
+  /**
+   * @return an empty cache of what a rule resolved, by user
+   */
+  public <T> Cache<String, T> newCache() {
+    return CacheBuilder.newBuilder()
+        .maximumSize(cacheMaxSize)
+        .expireAfterAccess(cacheTtlMillis, TimeUnit.MILLISECONDS)
+        .build();
+  }
+}
@@ -0,0 +1,232 @@
+package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of simple wildcard patterns ("*" stands for any sequence of characters) compiled into a single
+ * deterministic automaton, so matching a string against all the patterns takes one pass over the string.
+ * <p>
+ * Patterns are not anchored: a pattern matches if its literal parts can be found in the string, in order.
+ * This is how the "\Q...\E.*\Q...\E" regular expressions used to behave with Matcher.find().
+ * <p>
+ * The automaton is built eagerly; in the unlikely case the patterns make it grow beyond MAX_DFA_STATES,
+ * the underlying non deterministic automaton is simulated instead (still linear in the string length).
+ */
+public class WildcardAutomaton {
+  private static final int MAX_DFA_STATES = 10000;
+
+  // -- NFA: one state per character position of each pattern, plus one accepting state per pattern
+  private final char[] nfaChar;
+  private final boolean[] nfaLoops;
+  private final boolean[] nfaAccepts;
+  private final BitSet nfaStart = new BitSet();
+
+  // Characters appearing in the patterns are mapped to classes 1..n, anything else is class 0
+  private final int[] asciiClasses = new int[128];
+  private final Map<Character, Integer> otherClasses = new HashMap<>();
+  private final int classesCount;
+
+  // -- DFA: transitions[state * classesCount + class], or null if it was too big
+  private final int[] transitions;
+  private final boolean[] accepting;
+
+  private final boolean matchesEverything;
+
+  public WildcardAutomaton(Iterable<String> patterns) {
+    List<Character> chars = new ArrayList<>();
+    List<Boolean> loops = new ArrayList<>();
+    List<Boolean> accepts = new ArrayList<>();
+    boolean everything = false;
+
+    for (String p : patterns) {
+      String literal = p.replace("*", "");
+      if (literal.isEmpty()) {
+        everything = true;
+        continue;
+      }
+      boolean segmentStart = true;
+      nfaStart.set(chars.size());
+      for (int i = 0; i < p.length(); i++) {
+        char c = p.charAt(i);
+        if (c == '*') {
+          segmentStart = true;
+          continue;
+        }
+        chars.add(c);
+        loops.add(segmentStart);
+        accepts.add(false);
+        segmentStart = false;
+      }
+      // Accepting state: once a pattern is found, whatever follows is fine
+      chars.add((char) 0);
+      loops.add(true);
+      accepts.add(true);
+    }
+    matchesEverything = everything;
+
+    nfaChar = new char[chars.size()];
+    nfaLoops = new boolean[chars.size()];
+    nfaAccepts = new boolean[chars.size()];
+    int classes = 1;
+    for (int i = 0; i < nfaChar.length; i++) {
+      nfaChar[i] = chars.get(i);
+      nfaLoops[i] = loops.get(i);
+      nfaAccepts[i] = accepts.get(i);
+      if (!nfaAccepts[i] && classOf(nfaChar[i]) == 0) {
+        if (nfaChar[i] < 128) {
+          asciiClasses[nfaChar[i]] = classes++;
+        } else {
+          otherClasses.put(nfaChar[i], classes++);
+        }
+      }
+    }
+    classesCount = classes;
+
+    List<int[]> rows = new ArrayList<>();
+    List<Boolean> acc = new ArrayList<>();
+    if (!matchesEverything && buildDFA(rows, acc)) {
+      transitions = new int[rows.size() * classesCount];
+      accepting = new boolean[rows.size()];
+      for (int s = 0; s < rows.size(); s++) {
+        System.arraycopy(rows.get(s), 0, transitions, s * classesCount, classesCount);
+        accepting[s] = acc.get(s);
+      }
+    } else {
+      transitions = null;
+      accepting = null;
+    }
+  }
+
+  private int classOf(char c) {
+    if (c < 128) {
+      return asciiClasses[c];
+    }
+    Integer cls = otherClasses.get(c);
+    return cls == null ? 0 : cls;
+  }
+
+  /**
+   * A representative character for each class, to feed the NFA while building the DFA.
+   */
+  private char[] classRepresentatives() {
+    char[] reps = new char[classesCount];
+    // Class 0 needs a character that is in no pattern
+    char c = 1;
+    while (classOf(c) != 0) {
+      c++;
+    }
+    reps[0] = c;
+    for (int i = 0; i < 128; i++) {
+      if (asciiClasses[i] != 0) {
+        reps[asciiClasses[i]] = (char) i;
+      }
+    }
+    for (Map.Entry<Character, Integer> e : otherClasses.entrySet()) {
+      reps[e.getValue()] = e.getKey();
+    }
+    return reps;
+  }
+
+  private BitSet step(BitSet current, char c) {
+    BitSet next = new BitSet(nfaChar.length);
+    for (int s = current.nextSetBit(0); s >= 0; s = current.nextSetBit(s + 1)) {
+      if (nfaLoops[s]) {
+        next.set(s);
+      }
+      if (!nfaAccepts[s] && nfaChar[s] == c) {
+        next.set(s + 1);
+      }
+    }
+    return next;
+  }
+
+  private boolean accepts(BitSet states) {
+    for (int s = states.nextSetBit(0); s >= 0; s = states.nextSetBit(s + 1)) {
+      if (nfaAccepts[s]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Subset construction. Accepting states are not expanded, matching stops as soon as one is reached.
+   *
+   * @return false if the automaton grew too big
+   */
+  private boolean buildDFA(List<int[]> rows, List<Boolean> acc) {
+    char[] reps = classRepresentatives();
+    Map<BitSet, Integer> ids = new HashMap<>();
+    List<BitSet> pending = new ArrayList<>();
+    ids.put(nfaStart, 0);
+    pending.add(nfaStart);
+    for (int i = 0; i < pending.size(); i++) {
+      BitSet current = pending.get(i);
+      int[] row = new int[classesCount];
+      boolean isAccepting = accepts(current);
+      if (!isAccepting) {
+        for (int cls = 0; cls < classesCount; cls++) {
+          BitSet next = step(current, reps[cls]);
+          Integer id = ids.get(next);
+          if (id == null) {
+            if (ids.size() >= MAX_DFA_STATES) {
+              return false;
+            }
+            id = ids.size();
+            ids.put(next, id);
+            pending.add(next);
+          }
+          row[cls] = id;
+        }
+      }
+      rows.add(row);
+      acc.add(isAccepting);
+    }
+    return true;
+  }
+
+  public boolean matches(String s) {
+    if (matchesEverything) {
+      return true;
+    }
+    if (transitions == null) {
+      return simulate(s);
+    }
+    int state = 0;
+    for (int i = 0; i < s.length(); i++) {
+      state = transitions[state * classesCount + classOf(s.charAt(i))];
+      if (accepting[state]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean simulate(String s) {
+    BitSet current = nfaStart;
+    for (int i = 0; i < s.length(); i++) {
+      current = step(current, s.charAt(i));
+      if (accepts(current)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of states of the deterministic automaton, 0 if it is not in use
+   */
+  public int getStatesCount() {
+    return accepting == null ? 0 : accepting.length;
+  }
+
+  @Override
+  public String toString() {
+    return "WildcardAutomaton{ nfa states: " + nfaChar.length + ", dfa states: " + getStatesCount()
+        + ", classes: " + classesCount + ", matches everything: " + matchesEverything + " }";
+  }
+}
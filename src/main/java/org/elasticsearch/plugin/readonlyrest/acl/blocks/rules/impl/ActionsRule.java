@@ -23,6 +23,13 @@ public class ActionsRule extends Rule {
     m = MatcherWithWildcards.fromSettings(s, KEY);
   }
 
+  /**
+   * @return what match() answers to a request of this action
+   */
+  public boolean matchesAction(String action) {
+    return m.match(action);
+  }
+
   @Override
   public RuleExitResult match(RequestContext rc) {
     if (m.match(rc.getAction())) {
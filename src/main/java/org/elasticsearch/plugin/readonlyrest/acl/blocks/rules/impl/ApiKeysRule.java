@@ -8,6 +8,7 @@ import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -32,6 +33,23 @@ public class ApiKeysRule extends Rule {
     }
   }
 
+  @Override
+  public CostClass getCostClass() {
+    return CostClass.CHEAP;
+  }
+
+  @Override
+  public boolean isDecidedByHeaders() {
+    return true;
+  }
+
+  /**
+   * @return the keys one of which the X-Api-Key header must be
+   */
+  public List<String> getApiKeys() {
+    return Collections.unmodifiableList(validApiKeys);
+  }
+
   @Override
   public RuleExitResult match(RequestContext rc) {
     String h = rc.getRequest().header("X-Api-Key");
@@ -1,10 +1,11 @@
 package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl;
 
 import com.google.common.base.Charsets;
-import com.google.common.hash.Hashing;
 import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.common.Base64;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
 
 import java.io.IOException;
@@ -14,8 +15,8 @@ import java.io.IOException;
  */
 public class AuthKeySha1Rule extends AuthKeyRule {
 
-  public AuthKeySha1Rule(Settings s) throws RuleNotConfiguredException {
-    super(s);
+  public AuthKeySha1Rule(Settings s, AuthCache authCache) throws RuleNotConfiguredException {
+    super(s, authCache);
     try {
       authKey = new String(Base64.decode(authKey),Charsets.UTF_8);
     } catch (IOException e) {
@@ -24,13 +25,14 @@ public class AuthKeySha1Rule extends AuthKeyRule {
   }
 
   @Override
-  protected boolean checkEqual(String provided) {
-    try {
-      String decodedProvided = new String(Base64.decode(provided), Charsets.UTF_8);
-      String shaProvided = Hashing.sha1().hashString(decodedProvided, Charsets.UTF_8).toString();
-      return authKey.equals(shaProvided);
-    } catch (IOException e) {
-      return false;
-    }
+  public CostClass getCostClass() {
+    return CostClass.EXPENSIVE;
+  }
+
+  @Override
+  protected boolean checkEqual(RequestCredentials provided) {
+    // Decoded and hashed once per request, and not at all once the token was verified
+    AuthCache.Credentials credentials = provided.getDecoded(authCache);
+    return credentials != null && authKey.equals(credentials.getSha1());
   }
 }
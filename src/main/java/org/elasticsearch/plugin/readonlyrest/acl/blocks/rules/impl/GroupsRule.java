@@ -1,15 +1,13 @@
 package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
-import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.User;
-import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
 
 /**
  * A GroupsRule checks if a request containing Basic ReadOnlySettingParser credentials
@@ -19,38 +17,29 @@ import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserNotConfiguredE
  */
 public class GroupsRule extends Rule {
 
-  private final List<User> users = new ArrayList<>();
-  private final List<String> groups;
+  private final UserRegistry users;
+  private final BitSet groups;
 
-  public GroupsRule(Settings s, List<Settings> userList) throws RuleNotConfiguredException {
+  public GroupsRule(Settings s, UserRegistry users) throws RuleNotConfiguredException {
     super(s);
 
     String[] pGroups = s.getAsArray(this.KEY);
-    if (pGroups != null && pGroups.length > 0) {
-      this.groups = Arrays.asList(pGroups);
-    } else {
+    if (pGroups == null || pGroups.length == 0) {
       throw new RuleNotConfiguredException();
     }
-    for (Settings userProperties : userList) {
-      try {
-        this.users.add(new User(userProperties));
-      } catch (UserNotConfiguredException e) {
-      }
-    }
+    this.users = users;
+    this.groups = users.groupsMask(Arrays.asList(pGroups));
+  }
+
+  @Override
+  public CostClass getCostClass() {
+    return CostClass.EXPENSIVE;
   }
 
   @Override
   public RuleExitResult match(RequestContext rc) {
-    for (User user : this.users) {
-      if (user.getAuthKeyRule().match(rc).isMatch()) {
-        List<String> commonGroups = new ArrayList<>(user.getGroups());
-        commonGroups.retainAll(this.groups);
-        if (!commonGroups.isEmpty()) {
-          return MATCH;
-        }
-      }
-    }
-    return NO_MATCH;
+    BitSet userGroups = users.groupsOf(rc.getCredentials());
+    return userGroups != null && userGroups.intersects(groups) ? MATCH : NO_MATCH;
   }
 
 }
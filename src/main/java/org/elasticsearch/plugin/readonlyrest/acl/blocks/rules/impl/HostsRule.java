@@ -1,102 +1,124 @@
 package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl;
 
-import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.net.InetAddresses;
 import com.google.common.net.InternetDomainName;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
 import org.elasticsearch.plugin.readonlyrest.SecurityPermissionException;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
-import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.IPMask;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.CidrTrie;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
 import org.elasticsearch.rest.RestRequest;
 
-import java.net.UnknownHostException;
-import java.util.List;
+import java.util.Collections;
+import java.util.Set;
 
 /**
  * Created by sscarduzio on 13/02/2016.
  */
 public class HostsRule extends Rule {
 
-  private List<String> allowedAddresses;
+  // IP literals and networks
+  private final CidrTrie allowedNetworks = new CidrTrie();
+  // Anything else, resolved in the background by the DNS cache
+  private final Set<String> allowedHostnames = Sets.newHashSet();
+  private final DnsCache dnsCache;
   private Boolean acceptXForwardedForHeader;
 
-  public HostsRule(Settings s) throws RuleNotConfiguredException {
+  public HostsRule(Settings s, DnsCache dnsCache) throws RuleNotConfiguredException {
     super(s);
+    this.dnsCache = dnsCache;
     acceptXForwardedForHeader = s.getAsBoolean("accept_x-forwarded-for_header", false);
     String[] a = s.getAsArray("hosts");
-    if (a != null && a.length > 0) {
-      allowedAddresses = Lists.newArrayList();
-      for (int i = 0; i < a.length; i++) {
-        if (!ConfigurationHelper.isNullOrEmpty(a[i])) {
-          try {
-            IPMask.getIPMask(a[i]);
-          } catch (Exception e) {
-            if (!InternetDomainName.isValid(a[i])) {
-              throw new RuleConfigurationError("invalid address", e);
-            }
-          }
-          allowedAddresses.add(a[i].trim());
+    if (a == null || a.length == 0) {
+      throw new RuleNotConfiguredException();
+    }
+    for (String host : a) {
+      if (ConfigurationHelper.isNullOrEmpty(host)) {
+        continue;
+      }
+      host = host.trim();
+      int pos = host.indexOf('/');
+      String addr = pos < 0 ? host : host.substring(0, pos);
+      try {
+        if (InetAddresses.isInetAddress(addr)) {
+          allowedNetworks.add(host);
+        } else if (pos > 0) {
+          // Networks are only given by address: resolving a host name here would block the ACL load on DNS
+          throw new RuleConfigurationError("a network needs an IP address, not a host name: " + host, null);
+        } else if (InternetDomainName.isValid(host)) {
+          allowedHostnames.add(host);
+          dnsCache.register(host);
+        } else {
+          throw new RuleConfigurationError("invalid address: " + host, null);
         }
+      } catch (IllegalArgumentException e) {
+        throw new RuleConfigurationError("invalid address: " + host, e);
       }
-    } else {
-      throw new RuleNotConfiguredException();
     }
   }
 
+  @Override
+  protected String[] getSettingsKeys() {
+    return new String[]{"hosts", "accept_x-forwarded-for_header"};
+  }
+
   private static String getXForwardedForHeader(RestRequest request) {
     if (!ConfigurationHelper.isNullOrEmpty(request.header("X-Forwarded-For"))) {
       String[] parts = request.header("X-Forwarded-For").split(",");
       if (!ConfigurationHelper.isNullOrEmpty(parts[0])) {
-        return parts[0];
+        return parts[0].trim();
       }
     }
     return null;
   }
 
-
-  /*
-   * All "matches" methods should return true if no explicit condition was configured
-   */
-
-  private boolean matchesAddress(String address, String xForwardedForHeader) {
-
-    if (address == null) {
-      throw new SecurityPermissionException("For some reason the origin address of this call could not be determined. Abort!", null);
-    }
-    if (allowedAddresses == null) {
+  private boolean matchesAddress(byte[] address) {
+    if (allowedNetworks.contains(address)) {
       return true;
     }
-
-    if (acceptXForwardedForHeader && xForwardedForHeader != null) {
-      // Give it a try with the header
-      boolean attemptXFwdFor = matchesAddress(xForwardedForHeader, null);
-      if (attemptXFwdFor) {
-        return true;
-      }
-    }
-    for (String allowedAddress : allowedAddresses) {
-      if (allowedAddress.indexOf("/") > 0) {
-        try {
-          IPMask ipmask = IPMask.getIPMask(allowedAddress);
-          if (ipmask.matches(address)) {
-            return true;
-          }
-        } catch (UnknownHostException e) {
-        }
-      }
-      if (allowedAddress.equals(address)) {
+    for (String h : allowedHostnames) {
+      if (dnsCache.matches(h, address)) {
         return true;
       }
     }
     return false;
   }
 
+  private boolean matchesXForwardedFor(String xForwardedFor) {
+    if (InetAddresses.isInetAddress(xForwardedFor)) {
+      return matchesAddress(InetAddresses.forString(xForwardedFor).getAddress());
+    }
+    return allowedHostnames.contains(xForwardedFor);
+  }
+
+  /**
+   * @return the host names resolved through the DNS cache
+   */
+  public Set<String> getHostnames() {
+    return Collections.unmodifiableSet(allowedHostnames);
+  }
+
+  @Override
+  public boolean isDecidedByHeaders() {
+    return true;
+  }
+
   public RuleExitResult match(RequestContext rc) {
-    boolean res = matchesAddress(rc.getRemoteAddress(), getXForwardedForHeader(rc.getRequest()));
-    return res ? MATCH : NO_MATCH;
+    if (rc.getRequest().getRemoteAddress() == null) {
+      throw new SecurityPermissionException("For some reason the origin address of this call could not be determined. Abort!", null);
+    }
+    if (acceptXForwardedForHeader) {
+      String xForwardedFor = getXForwardedForHeader(rc.getRequest());
+      if (xForwardedFor != null && matchesXForwardedFor(xForwardedFor)) {
+        return MATCH;
+      }
+    }
+    return matchesAddress(rc.getRemoteAddressBytes()) ? MATCH : NO_MATCH;
   }
 }
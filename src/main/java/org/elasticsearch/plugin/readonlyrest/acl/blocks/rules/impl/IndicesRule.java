@@ -1,17 +1,25 @@
 package org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl;
 
+import com.google.common.cache.Cache;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshot;
 import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.MatcherWithWildcards;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserVariables;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Created by sscarduzio on 20/02/2016.
@@ -22,13 +30,116 @@ public class IndicesRule extends Rule {
 
   protected MatcherWithWildcards configuredWildcards;
 
+  // The index and alias names of the cluster this rule allows, kept in sync with the indices snapshots
+  private final Set<String> allowedIndices = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private volatile long allowedIndicesVersion = IndicesSnapshot.NO_VERSION;
+
+  // With user variables (i.e. "@{user}_*"): the rule with the patterns of each user, null otherwise
+  private final Cache<String, IndicesRule> byUser;
+  private final AuthCache authCache;
+
   public IndicesRule(Settings s) throws RuleNotConfiguredException {
+    this(s, null, null);
+  }
+
+  /**
+   * @param userVariables how to resolve the user variables, null to take the patterns literally
+   */
+  public IndicesRule(Settings s, UserVariables userVariables, AuthCache authCache) throws RuleNotConfiguredException {
     super(s);
     configuredWildcards = MatcherWithWildcards.fromSettings(s, KEY);
+    this.authCache = authCache;
+    boolean templated = userVariables != null && UserVariables.hasVariables(configuredWildcards.getMatchers());
+    byUser = templated ? userVariables.<IndicesRule>newCache() : null;
+  }
+
+  @Override
+  public CostClass getCostClass() {
+    return CostClass.EXPENSIVE;
+  }
+
+  @Override
+  public boolean isRewriting() {
+    return true;
+  }
+
+  @Override
+  public boolean hasUserVariables() {
+    return byUser != null;
+  }
+
+  private IndicesRule forUser(final String user) throws ExecutionException {
+    return byUser.get(user, new Callable<IndicesRule>() {
+      @Override
+      public IndicesRule call() throws Exception {
+        String[] patterns = UserVariables.resolve(configuredWildcards.getMatchers(), user);
+        return new IndicesRule(Settings.builder().putArray(KEY, patterns).build());
+      }
+    });
+  }
+
+  /**
+   * @return true if this index is configured by its name, not through a wildcard
+   */
+  public boolean namesIndex(String index) {
+    return configuredWildcards.getMatchers().contains(index);
+  }
+
+  /**
+   * @return the names in the snapshot allowed by this rule. Concurrently updated: it can be slightly ahead of the snapshot.
+   */
+  Set<String> getAllowedIndices(IndicesSnapshot snapshot) {
+    if (snapshot.getVersion() > allowedIndicesVersion) {
+      syncAllowedIndices(snapshot);
+    }
+    return allowedIndices;
+  }
+
+  private synchronized void syncAllowedIndices(IndicesSnapshot snapshot) {
+    if (snapshot.getVersion() <= allowedIndicesVersion) {
+      return;
+    }
+    // Names are added before the stale ones are removed, readers never see an allowed name missing
+    if (snapshot.getPreviousVersion() == allowedIndicesVersion) {
+      addAllowed(snapshot.getAdded());
+      allowedIndices.removeAll(snapshot.getRemoved());
+    } else {
+      // We missed some snapshot, start over
+      Set<String> fresh = new HashSet<>();
+      for (String name : snapshot.getIndicesAndAliases()) {
+        if (configuredWildcards.match(name)) {
+          fresh.add(name);
+        }
+      }
+      allowedIndices.addAll(fresh);
+      allowedIndices.retainAll(fresh);
+    }
+    allowedIndicesVersion = snapshot.getVersion();
+  }
+
+  private void addAllowed(Set<String> names) {
+    for (String name : names) {
+      if (configuredWildcards.match(name)) {
+        allowedIndices.add(name);
+      }
+    }
   }
 
   @Override
   public RuleExitResult match(RequestContext rc) {
+    if (byUser != null) {
+      String user = UserVariables.user(rc, authCache);
+      if (user == null) {
+        return NO_MATCH;
+      }
+      try {
+        return forUser(user).match(rc).isMatch() ? MATCH : NO_MATCH;
+      } catch (ExecutionException e) {
+        logger.error("cannot resolve the indices of " + user, e);
+        return NO_MATCH;
+      }
+    }
+
     if (rc.getActionRequest() instanceof SearchRequest) {
       // 1. Requesting none or all the indices means requesting allowed indices..
       if (rc.getIndices().size() == 0 || (rc.getIndices().contains("_all"))) {
@@ -39,7 +150,7 @@ public class IndicesRule extends Rule {
       // ----- Now you requested SOME indices, let'ReadOnlySettingParser see if and what we can allow in..
 
       // 2. All indices match by wildcard?
-      if (configuredWildcards.filter(rc.getIndices()).size() == rc.getIndices().size()) {
+      if (configuredWildcards.matchesAll(rc.getIndices())) {
         return MATCH;
       }
 
@@ -55,19 +166,25 @@ public class IndicesRule extends Rule {
       }
 
       // 3. indices match by reverse-wildcard?
-      // Expand requested indices to a subset of indices available in ES
-      Set<String> expansion = new MatcherWithWildcards(rc.getIndices()).filter(rc.getAvailableIndicesAndAliases());
-
-      // 4. Your request expands to no actual index, fine with me, it will return 404 on its own!
-      if (expansion.size() == 0) {
-        return MATCH;
+      // Expand requested indices to the subset of allowed indices available in ES
+      IndicesSnapshot snapshot = rc.getIndicesSnapshot();
+      Set<String> requested = snapshot.match(rc.getIndices());
+      Set<String> allowed = getAllowedIndices(snapshot);
+      Set<String> smaller = requested.size() <= allowed.size() ? requested : allowed;
+      Set<String> larger = smaller == requested ? allowed : requested;
+      Set<String> allowedExpansion = new HashSet<>();
+      for (String idx : smaller) {
+        if (larger.contains(idx)) {
+          allowedExpansion.add(idx);
+        }
       }
 
-      // ------ Your request expands to many available indices, let'ReadOnlySettingParser see which ones you are allowed to request..
-      Set<String> allowedExpansion = configuredWildcards.filter(expansion);
-
-      // 5. You requested some indices, but NONE were allowed
       if (allowedExpansion.size() == 0) {
+        // 4. Your request expands to no actual index, fine with me, it will return 404 on its own!
+        if (requested.isEmpty()) {
+          return MATCH;
+        }
+        // 5. You requested some indices, but NONE were allowed
         // #TODO should I set indices to rule wildcards?
         return NO_MATCH;
       }
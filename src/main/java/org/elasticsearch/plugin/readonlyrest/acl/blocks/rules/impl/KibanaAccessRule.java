@@ -80,6 +80,11 @@ public class KibanaAccessRule extends Rule {
     }
   }
 
+  @Override
+  protected String[] getSettingsKeys() {
+    return new String[]{KEY, "kibana_index"};
+  }
+
   @Override
   public RuleExitResult match(RequestContext rc) {
 
@@ -20,8 +20,22 @@ public class MaxBodyLengthRule extends Rule {
     }
   }
 
+  @Override
+  public CostClass getCostClass() {
+    return CostClass.CHEAP;
+  }
+
+  public int getMaxBodyLength() {
+    return maxBodyLength;
+  }
+
+  @Override
+  protected String[] getSettingsKeys() {
+    return new String[]{"maxBodyLength"};
+  }
+
   @Override
   public RuleExitResult match(RequestContext rc) {
-    return (rc.getRequest().content().length() > maxBodyLength) ? NO_MATCH : MATCH;
+    return (rc.getBody().length() > maxBodyLength) ? NO_MATCH : MATCH;
   }
 }
@@ -9,6 +9,7 @@ import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
 import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
 import org.elasticsearch.rest.RestRequest;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -38,6 +39,20 @@ public class MethodsRule extends Rule {
 
   }
 
+  @Override
+  public CostClass getCostClass() {
+    return CostClass.CHEAP;
+  }
+
+  @Override
+  public boolean isDecidedByHeaders() {
+    return true;
+  }
+
+  public List<RestRequest.Method> getMethods() {
+    return Collections.unmodifiableList(allowedMethods);
+  }
+
   /*
     NB: Elasticsearch will parse as GET any HTTP methods than it does not understand.
     So it'ReadOnlySettingParser normal if you allowed GET and see a 'LINK' request going throw.
@@ -36,6 +36,11 @@ public class UriReRule extends Rule {
     }
   }
 
+  @Override
+  public boolean isDecidedByHeaders() {
+    return true;
+  }
+
   @Override
   public RuleExitResult match(RequestContext rc) {
     if (uri_re == null) {
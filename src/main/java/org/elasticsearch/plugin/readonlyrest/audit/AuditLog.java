@@ -0,0 +1,252 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import com.google.common.collect.ImmutableList;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.component.AbstractLifecycleComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Provider;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.env.Environment;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records the ACL decisions without slowing down the requests: the request threads put compact records
+ * in a bounded ring buffer, a background thread writes them to the sinks in batches.
+ * <p>
+ * The request threads never wait: when the buffer is full the record is dropped and counted.
+ * When the buffer is filling up, the writer is woken right away instead of at the next flush interval.
+ * The writer runs from start() to stop(); close() writes what is left and closes the sinks.
+ */
+@Singleton
+public class AuditLog extends AbstractLifecycleComponent<AuditLog> {
+  private final List<AuditSink> sinks;
+  private final RingBuffer<AuditRecord> buffer;
+  private final int batchSize;
+  private final long flushIntervalNanos;
+  private final int highWaterMark;
+
+  private final CounterMetric enqueued = new CounterMetric();
+  private final CounterMetric dropped = new CounterMetric();
+  private final CounterMetric highWater = new CounterMetric();
+  private final CounterMetric written = new CounterMetric();
+  private final CounterMetric failed = new CounterMetric();
+
+  private volatile Thread writer = null;
+  private volatile boolean running = false;
+
+  @Inject
+  public AuditLog(Settings settings, ConfigurationHelper conf, Environment env, Provider<Client> client) {
+    this(settings, sinks(conf, env, client), conf.auditEnabled ? conf.auditBufferSize : 1, conf.auditBatchSize,
+        conf.auditEnabled ? conf.auditFlushInterval.millis() : 0);
+  }
+
+  /**
+   * @param flushIntervalMillis the longest a record waits in the buffer, no background writer if not positive
+   */
+  public AuditLog(List<AuditSink> sinks, int bufferSize, int batchSize, long flushIntervalMillis) {
+    this(Settings.EMPTY, sinks, bufferSize, batchSize, flushIntervalMillis);
+  }
+
+  private AuditLog(Settings settings, List<AuditSink> sinks, int bufferSize, int batchSize, long flushIntervalMillis) {
+    super(settings);
+    this.sinks = ImmutableList.copyOf(sinks);
+    this.buffer = new RingBuffer<>(bufferSize);
+    this.batchSize = batchSize;
+    this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+    this.highWaterMark = buffer.capacity() - buffer.capacity() / 4;
+  }
+
+  private static List<AuditSink> sinks(ConfigurationHelper conf, Environment env, Provider<Client> client) {
+    List<AuditSink> sinks = new ArrayList<>();
+    if (!conf.auditEnabled) {
+      return sinks;
+    }
+    sinks.add(new RotatingFileAuditSink(
+        env.logsFile().resolve(conf.auditFile), conf.auditFileMaxSize.bytes(), conf.auditFileMaxFiles));
+    if (!ConfigurationHelper.isNullOrEmpty(conf.auditIndex)) {
+      sinks.add(new BulkAuditSink(client, conf.auditIndex, conf.auditFlushInterval));
+    }
+    return sinks;
+  }
+
+  public boolean isEnabled() {
+    return !sinks.isEmpty();
+  }
+
+  /**
+   * Called by the request threads: never blocks.
+   */
+  public void log(RequestContext rc, BlockExitResult result, AuthCache authCache) {
+    if (!isEnabled()) {
+      return;
+    }
+    AuditRecord record;
+    try {
+      record = AuditRecord.from(rc, result, authCache);
+    } catch (RuntimeException e) {
+      logger.debug("could not build the audit record of " + rc.getAction(), e);
+      dropped.inc();
+      return;
+    }
+    log(record);
+  }
+
+  public void log(AuditRecord record) {
+    if (!buffer.offer(record)) {
+      dropped.inc();
+      return;
+    }
+    enqueued.inc();
+    if (buffer.size() >= highWaterMark) {
+      highWater.inc();
+      Thread w = writer;
+      if (w != null) {
+        LockSupport.unpark(w);
+      }
+    }
+  }
+
+  @Override
+  protected void doStart() {
+    if (sinks.isEmpty() || flushIntervalNanos <= 0) {
+      return;
+    }
+    running = true;
+    Thread t = EsExecutors.daemonThreadFactory("readonlyrest-audit").newThread(new Runnable() {
+      @Override
+      public void run() {
+        writeLoop();
+      }
+    });
+    writer = t;
+    t.start();
+  }
+
+  private void writeLoop() {
+    while (running) {
+      int n = flush(batchSize);
+      if (n < batchSize) {
+        LockSupport.parkNanos(this, flushIntervalNanos);
+      }
+    }
+  }
+
+  /**
+   * Write all the buffered records to the sinks now.
+   */
+  public void flush() {
+    while (flush(batchSize) > 0) {
+    }
+  }
+
+  /**
+   * @return the number of records taken from the buffer
+   */
+  private synchronized int flush(int max) {
+    List<AuditRecord> batch = new ArrayList<>(Math.min(max, buffer.size()));
+    int n = buffer.drainTo(batch, max);
+    if (n == 0) {
+      return 0;
+    }
+    for (AuditSink sink : sinks) {
+      try {
+        sink.write(batch);
+        written.inc(n);
+      } catch (IOException | RuntimeException e) {
+        failed.inc(n);
+        logger.warn("could not write " + n + " audit records to " + sink.getName() + ": " + e.getMessage());
+      }
+    }
+    return n;
+  }
+
+  @Override
+  protected void doStop() {
+    running = false;
+    Thread w = writer;
+    if (w != null) {
+      LockSupport.unpark(w);
+      try {
+        w.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1000);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      writer = null;
+    }
+    flush();
+  }
+
+  @Override
+  protected void doClose() {
+    // What was logged since stop(), or everything if never started
+    flush();
+    for (AuditSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        logger.warn("could not close the audit sink " + sink.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * @return records accepted in the buffer
+   */
+  public long getEnqueued() {
+    return enqueued.count();
+  }
+
+  /**
+   * @return records lost because the buffer was full (or they could not be built)
+   */
+  public long getDropped() {
+    return dropped.count();
+  }
+
+  /**
+   * @return how many times a record found the buffer over three quarters full, and woke the writer early
+   */
+  public long getHighWaterEvents() {
+    return highWater.count();
+  }
+
+  /**
+   * @return records written, counted once per sink
+   */
+  public long getWritten() {
+    return written.count();
+  }
+
+  /**
+   * @return records a sink failed to write, counted once per sink
+   */
+  public long getFailed() {
+    return failed.count();
+  }
+
+  public int getPending() {
+    return buffer.size();
+  }
+
+  public int getCapacity() {
+    return buffer.capacity();
+  }
+
+  @Override
+  public String toString() {
+    return "{ enqueued: " + getEnqueued() + ", dropped: " + getDropped() + ", high_water: " + getHighWaterEvents() +
+        ", written: " + getWritten() + ", failed: " + getFailed() + ", pending: " + getPending() + "/" + getCapacity() + " }";
+  }
+}
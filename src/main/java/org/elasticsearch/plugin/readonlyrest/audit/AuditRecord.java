@@ -0,0 +1,106 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+
+import java.io.IOException;
+import java.util.Set;
+
+import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+
+/**
+ * One ACL decision. Only holds what the request context already computed, the serialization happens
+ * on the audit writer thread.
+ */
+public class AuditRecord {
+  private final long timestamp;
+  private final boolean allowed;
+  private final String block;
+  private final String action;
+  private final String method;
+  private final String path;
+  private final String remoteAddress;
+  private final String user;
+  private final String[] indices;
+  private final int contentLength;
+
+  public AuditRecord(long timestamp, boolean allowed, String block, String action, String method, String path,
+                     String remoteAddress, String user, String[] indices, int contentLength) {
+    this.timestamp = timestamp;
+    this.allowed = allowed;
+    this.block = block;
+    this.action = action;
+    this.method = method;
+    this.path = path;
+    this.remoteAddress = remoteAddress;
+    this.user = user;
+    this.indices = indices;
+    this.contentLength = contentLength;
+  }
+
+  public static AuditRecord from(RequestContext rc, BlockExitResult result, AuthCache authCache) {
+    Block block = result.getBlock();
+    boolean allowed = result.isMatch() && block.getPolicy() == Block.Policy.ALLOW;
+    AuthCache.Credentials credentials = rc.getCredentials().getDecoded(authCache);
+    Set<String> indices = rc.getIndices();
+    return new AuditRecord(
+        System.currentTimeMillis(),
+        allowed,
+        block == null ? null : block.getName(),
+        rc.getAction(),
+        String.valueOf(rc.getRequest().method()),
+        rc.getRequest().path(),
+        rc.getRemoteAddress(),
+        credentials == null ? null : credentials.getUser(),
+        indices.toArray(new String[indices.size()]),
+        rc.getBody().length()
+    );
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public boolean isAllowed() {
+    return allowed;
+  }
+
+  public String getBlock() {
+    return block;
+  }
+
+  public String getUser() {
+    return user;
+  }
+
+  public XContentBuilder toXContent(XContentBuilder b) throws IOException {
+    return b.startObject()
+        .field("@timestamp", timestamp)
+        .field("allowed", allowed)
+        .field("block", block)
+        .field("action", action)
+        .field("method", method)
+        .field("path", path)
+        .field("remote_address", remoteAddress)
+        .field("user", user)
+        .array("indices", indices)
+        .field("content_length", contentLength)
+        .endObject();
+  }
+
+  public String toJson() throws IOException {
+    return toXContent(jsonBuilder()).string();
+  }
+
+  @Override
+  public String toString() {
+    try {
+      return toJson();
+    } catch (IOException e) {
+      return "<audit record: " + e.getMessage() + ">";
+    }
+  }
+}
@@ -0,0 +1,15 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Where the audit writer sends the batches of records. Only ever called from one thread at a time.
+ */
+public interface AuditSink extends Closeable {
+
+  void write(List<AuditRecord> batch) throws IOException;
+
+  String getName();
+}
@@ -0,0 +1,56 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.inject.Provider;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentFactory;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Indexes the records in a local index through the bulk API. The bulk requests carry no REST request,
+ * so the ACL action filter lets them through without auditing them.
+ */
+public class BulkAuditSink implements AuditSink {
+  private static final String TYPE = "audit";
+
+  // The client is looked up lazily: it depends on the action filters, which depend on the audit log
+  private final Provider<Client> client;
+  private final String index;
+  private final TimeValue timeout;
+
+  public BulkAuditSink(Provider<Client> client, String index, TimeValue timeout) {
+    this.client = client;
+    this.index = index;
+    this.timeout = timeout;
+  }
+
+  @Override
+  public void write(List<AuditRecord> batch) throws IOException {
+    BulkRequestBuilder bulk = client.get().prepareBulk();
+    for (AuditRecord r : batch) {
+      bulk.add(client.get().prepareIndex(index, TYPE).setSource(r.toXContent(XContentFactory.jsonBuilder())));
+    }
+    BulkResponse response;
+    try {
+      response = bulk.execute().actionGet(timeout);
+    } catch (RuntimeException e) {
+      throw new IOException("bulk indexing to " + index + " failed", e);
+    }
+    if (response.hasFailures()) {
+      throw new IOException("bulk indexing to " + index + " failed: " + response.buildFailureMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  @Override
+  public String getName() {
+    return "index:" + index;
+  }
+}
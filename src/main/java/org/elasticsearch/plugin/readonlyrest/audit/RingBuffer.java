@@ -0,0 +1,118 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue over a power of two array (D. Vyukov's MPMC design): every slot carries a sequence
+ * number telling whether it is ready to be written or read at a given position, so offer() and poll() only
+ * ever CAS a position counter. A full buffer makes offer() fail instead of blocking.
+ */
+public class RingBuffer<E> {
+  private final int mask;
+  private final AtomicReferenceArray<E> slots;
+  private final AtomicLongArray sequences;
+  // Next position to write and to read
+  private final AtomicLong tail = new AtomicLong();
+  private final AtomicLong head = new AtomicLong();
+
+  /**
+   * @param capacity rounded up to a power of two
+   */
+  public RingBuffer(int capacity) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("invalid ring buffer capacity: " + capacity);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    mask = size - 1;
+    slots = new AtomicReferenceArray<>(size);
+    sequences = new AtomicLongArray(size);
+    for (int i = 0; i < size; i++) {
+      sequences.set(i, i);
+    }
+  }
+
+  /**
+   * @return false if the buffer is full
+   */
+  public boolean offer(E e) {
+    long pos = tail.get();
+    while (true) {
+      int i = (int) pos & mask;
+      long diff = sequences.get(i) - pos;
+      if (diff == 0) {
+        if (tail.compareAndSet(pos, pos + 1)) {
+          slots.lazySet(i, e);
+          // Publishes the element to the readers
+          sequences.lazySet(i, pos + 1);
+          return true;
+        }
+        pos = tail.get();
+      }
+      else if (diff < 0) {
+        // The slot still holds the element of the previous lap
+        return false;
+      }
+      else {
+        pos = tail.get();
+      }
+    }
+  }
+
+  /**
+   * @return the oldest element, or null if the buffer is empty
+   */
+  public E poll() {
+    long pos = head.get();
+    while (true) {
+      int i = (int) pos & mask;
+      long diff = sequences.get(i) - (pos + 1);
+      if (diff == 0) {
+        if (head.compareAndSet(pos, pos + 1)) {
+          E e = slots.get(i);
+          slots.lazySet(i, null);
+          // Frees the slot for the writers of the next lap
+          sequences.lazySet(i, pos + mask + 1);
+          return e;
+        }
+        pos = head.get();
+      }
+      else if (diff < 0) {
+        return null;
+      }
+      else {
+        pos = head.get();
+      }
+    }
+  }
+
+  /**
+   * @return how many elements were moved to the collection, at most max
+   */
+  public int drainTo(Collection<? super E> to, int max) {
+    int n = 0;
+    E e;
+    while (n < max && (e = poll()) != null) {
+      to.add(e);
+      n++;
+    }
+    return n;
+  }
+
+  /**
+   * @return the number of elements, only an estimate while other threads are at work
+   */
+  public int size() {
+    long size = tail.get() - head.get();
+    return (int) Math.max(0, Math.min(size, capacity()));
+  }
+
+  public int capacity() {
+    return mask + 1;
+  }
+}
@@ -0,0 +1,97 @@
+package org.elasticsearch.plugin.readonlyrest.audit;
+
+import com.google.common.base.Charsets;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends the records as JSON lines to a file. When the file would grow past maxBytes, it is renamed
+ * to file.1 (file.1 to file.2 and so on), and the oldest beyond maxFiles is deleted.
+ */
+public class RotatingFileAuditSink implements AuditSink {
+  private static final byte[] NEWLINE = {'\n'};
+
+  private final Path file;
+  private final long maxBytes;
+  private final int maxFiles;
+  private OutputStream out = null;
+  private long size = 0;
+
+  public RotatingFileAuditSink(Path file, long maxBytes, int maxFiles) {
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.maxFiles = maxFiles;
+  }
+
+  @Override
+  public void write(List<AuditRecord> batch) throws IOException {
+    if (out == null) {
+      open();
+    }
+    for (AuditRecord r : batch) {
+      byte[] line = r.toJson().getBytes(Charsets.UTF_8);
+      if (size > 0 && size + line.length + 1 > maxBytes) {
+        rotate();
+      }
+      out.write(line);
+      out.write(NEWLINE);
+      size += line.length + 1;
+    }
+    out.flush();
+  }
+
+  private void open() throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+    out = new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+    size = Files.size(file);
+  }
+
+  private void rotate() throws IOException {
+    close();
+    Files.deleteIfExists(rotated(maxFiles));
+    for (int i = maxFiles - 1; i >= 1; i--) {
+      Path from = rotated(i);
+      if (Files.exists(from)) {
+        Files.move(from, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    if (maxFiles > 0) {
+      Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+    else {
+      Files.deleteIfExists(file);
+    }
+    open();
+  }
+
+  private Path rotated(int i) {
+    return file.resolveSibling(file.getFileName() + "." + i);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (out != null) {
+      try {
+        out.close();
+      } finally {
+        out = null;
+        size = 0;
+      }
+    }
+  }
+
+  @Override
+  public String getName() {
+    return "file:" + file;
+  }
+}
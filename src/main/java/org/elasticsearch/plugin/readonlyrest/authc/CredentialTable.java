@@ -0,0 +1,127 @@
+package org.elasticsearch.plugin.readonlyrest.authc;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The Basic auth tokens of the users that have a clear text auth_key, compiled once into an open addressing
+ * hash table.
+ * <p>
+ * Checking a token takes a hash lookup and a constant time comparison of the candidate, and allocates nothing.
+ */
+public class CredentialTable {
+    private final static String USERS_PREFIX = "readonlyrest.users";
+
+    public static final CredentialTable EMPTY = new CredentialTable(new LinkedHashSet<String>());
+
+    private final int[] hashes;
+    private final char[][] tokens;
+    private final int mask;
+    private final int size;
+
+    private CredentialTable(Set<String> tokenSet) {
+        int capacity = 4;
+        while (capacity < tokenSet.size() * 2) {
+            capacity <<= 1;
+        }
+        hashes = new int[capacity];
+        tokens = new char[capacity][];
+        mask = capacity - 1;
+        size = tokenSet.size();
+        for (String t : tokenSet) {
+            char[] chars = t.toCharArray();
+            int h = hash(chars);
+            int i = h & mask;
+            while (tokens[i] != null) {
+                i = (i + 1) & mask;
+            }
+            hashes[i] = h;
+            tokens[i] = chars;
+        }
+    }
+
+    public static CredentialTable fromSettings(Settings s) {
+        Set<String> tokenSet = new LinkedHashSet<>();
+        for (Map.Entry<String, Settings> user : s.getGroups(USERS_PREFIX).entrySet()) {
+            String authKey = user.getValue().get("auth_key");
+            if (authKey != null && authKey.trim().length() > 0) {
+                tokenSet.add(Base64.encodeBytes(authKey.getBytes(Charsets.UTF_8)));
+            }
+        }
+        return new CredentialTable(tokenSet);
+    }
+
+    // Same as String.hashCode()
+    private static int hash(char[] s) {
+        int h = 0;
+        for (char c : s) {
+            h = 31 * h + c;
+        }
+        return h;
+    }
+
+    // Same as s.substring(start, end).hashCode()
+    private static int hash(String s, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + s.charAt(i);
+        }
+        return h;
+    }
+
+    /**
+     * Compares all the characters whatever the first difference, so the time taken does not tell how
+     * much of the token was right.
+     */
+    private static boolean constantTimeEquals(char[] expected, String s, int start, int end) {
+        if (expected.length != end - start) {
+            return false;
+        }
+        int diff = 0;
+        for (int i = 0; i < expected.length; i++) {
+            diff |= expected[i] ^ s.charAt(start + i);
+        }
+        return diff == 0;
+    }
+
+    private boolean matches(String s, int start, int end) {
+        int h = hash(s, start, end);
+        for (int i = h & mask; tokens[i] != null; i = (i + 1) & mask) {
+            if (hashes[i] == h && constantTimeEquals(tokens[i], s, start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param basicToken the base64 part of a Basic Authorization header, or null
+     * @return true if it is the token of a known user
+     */
+    public boolean matches(String basicToken) {
+        return basicToken != null && matches(basicToken, 0, basicToken.length());
+    }
+
+    /**
+     * @param authorizationHeader the Authorization header of a request, or null
+     * @return true if it carries the Basic token of a known user: the token is hashed and compared in place
+     */
+    public boolean matchesHeader(String authorizationHeader) {
+        int start = RequestCredentials.basicTokenStart(authorizationHeader);
+        if (start < 0) {
+            return false;
+        }
+        int end = RequestCredentials.basicTokenEnd(authorizationHeader, start);
+        return start < end && matches(authorizationHeader, start, end);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,32 @@
+package org.elasticsearch.plugin.readonlyrest.authc;
+
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.inject.Singleton;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+
+/**
+ * Holds the credential table checked by the REST filter, built once and swapped as a whole when the
+ * configuration changes.
+ */
+@Singleton
+public class RestCredentials {
+    private final static ESLogger logger = Loggers.getLogger(RestCredentials.class);
+
+    private volatile CredentialTable table;
+
+    @Inject
+    public RestCredentials(Settings settings) {
+        reload(settings);
+    }
+
+    public CredentialTable get() {
+        return table;
+    }
+
+    public void reload(Settings settings) {
+        table = CredentialTable.fromSettings(settings);
+        logger.info("REST credentials loaded for " + table.size() + " users");
+    }
+}
@@ -0,0 +1,46 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.plugin.readonlyrest.acl.ReloadResult;
+
+import java.io.IOException;
+
+/**
+ * The outcome of the reload on one node.
+ */
+public class NodeReloadResult extends BaseNodeResponse {
+  private ReloadResult result;
+
+  NodeReloadResult() {
+  }
+
+  public NodeReloadResult(DiscoveryNode node, ReloadResult result) {
+    super(node);
+    this.result = result;
+  }
+
+  public static NodeReloadResult readNodeReloadResult(StreamInput in) throws IOException {
+    NodeReloadResult r = new NodeReloadResult();
+    r.readFrom(in);
+    return r;
+  }
+
+  public ReloadResult getResult() {
+    return result;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    super.readFrom(in);
+    result = ReloadResult.readReloadResult(in);
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    super.writeTo(out);
+    result.writeTo(out);
+  }
+}
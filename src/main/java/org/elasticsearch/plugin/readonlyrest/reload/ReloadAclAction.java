@@ -0,0 +1,27 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ * Reloads the ACL of the selected nodes from the ACL index if enabled, from their reload file otherwise. Being an action, it is subject to the ACL.
+ */
+public class ReloadAclAction extends Action<ReloadAclRequest, ReloadAclResponse, ReloadAclRequestBuilder> {
+
+  public static final ReloadAclAction INSTANCE = new ReloadAclAction();
+  public static final String NAME = "cluster:admin/readonlyrest/reload";
+
+  private ReloadAclAction() {
+    super(NAME);
+  }
+
+  @Override
+  public ReloadAclRequestBuilder newRequestBuilder(ElasticsearchClient client) {
+    return new ReloadAclRequestBuilder(client, this);
+  }
+
+  @Override
+  public ReloadAclResponse newResponse() {
+    return new ReloadAclResponse();
+  }
+}
@@ -0,0 +1,13 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+
+public class ReloadAclRequest extends BaseNodesRequest<ReloadAclRequest> {
+
+  public ReloadAclRequest() {
+  }
+
+  public ReloadAclRequest(String... nodesIds) {
+    super(nodesIds);
+  }
+}
@@ -0,0 +1,11 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+
+public class ReloadAclRequestBuilder extends NodesOperationRequestBuilder<ReloadAclRequest, ReloadAclResponse, ReloadAclRequestBuilder> {
+
+  public ReloadAclRequestBuilder(ElasticsearchClient client, ReloadAclAction action) {
+    super(client, action, new ReloadAclRequest());
+  }
+}
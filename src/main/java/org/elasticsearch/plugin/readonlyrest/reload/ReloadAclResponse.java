@@ -0,0 +1,64 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+public class ReloadAclResponse extends BaseNodesResponse<NodeReloadResult> implements ToXContent {
+
+  ReloadAclResponse() {
+  }
+
+  public ReloadAclResponse(ClusterName clusterName, NodeReloadResult[] nodes) {
+    super(clusterName, nodes);
+  }
+
+  /**
+   * @return true if some node could not reload its ACL
+   */
+  public boolean hasFailures() {
+    for (NodeReloadResult n : nodes) {
+      if (n.getResult().isFailed()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    super.readFrom(in);
+    nodes = new NodeReloadResult[in.readVInt()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = NodeReloadResult.readNodeReloadResult(in);
+    }
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    super.writeTo(out);
+    out.writeVInt(nodes.length);
+    for (NodeReloadResult n : nodes) {
+      n.writeTo(out);
+    }
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.field("cluster_name", getClusterName().value());
+    builder.startObject("nodes");
+    for (NodeReloadResult n : nodes) {
+      builder.startObject(n.getNode().id());
+      builder.field("name", n.getNode().name());
+      n.getResult().toXContent(builder, params);
+      builder.endObject();
+    }
+    builder.endObject();
+    return builder;
+  }
+}
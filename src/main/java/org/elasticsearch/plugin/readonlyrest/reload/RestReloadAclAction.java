@@ -0,0 +1,51 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+/**
+ * POST /_readonlyrest/reload: every node reloads its ACL, from the ACL index if enabled, from its own reload file otherwise.
+ * POST /_readonlyrest/reload/{nodeId}: only the selected nodes (i.e. _local) do.
+ */
+public class RestReloadAclAction extends BaseRestHandler {
+
+  @Inject
+  public RestReloadAclAction(Settings settings, RestController controller, Client client) {
+    super(settings, controller, client);
+    controller.registerHandler(POST, "/_readonlyrest/reload", this);
+    controller.registerHandler(POST, "/_readonlyrest/reload/{nodeId}", this);
+  }
+
+  @Override
+  protected void handleRequest(RestRequest request, final RestChannel channel, Client client) {
+    String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodeId", "_all"));
+    ReloadAclRequest reloadRequest = new ReloadAclRequest(nodesIds);
+    if (request.hasParam("timeout")) {
+      reloadRequest.timeout(request.param("timeout"));
+    }
+
+    client.execute(ReloadAclAction.INSTANCE, reloadRequest, new RestBuilderListener<ReloadAclResponse>(channel) {
+      @Override
+      public RestResponse buildResponse(ReloadAclResponse response, XContentBuilder builder) throws Exception {
+        builder.startObject();
+        response.toXContent(builder, channel.request());
+        builder.endObject();
+        // The nodes that failed keep their ACL, the others are reloaded all the same
+        return new BytesRestResponse(response.hasFailures() ? RestStatus.INTERNAL_SERVER_ERROR : RestStatus.OK, builder);
+      }
+    });
+  }
+}
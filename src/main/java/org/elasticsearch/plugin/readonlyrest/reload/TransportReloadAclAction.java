@@ -0,0 +1,81 @@
+package org.elasticsearch.plugin.readonlyrest.reload;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexWatcher;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class TransportReloadAclAction extends TransportNodesAction<ReloadAclRequest, ReloadAclResponse,
+    TransportReloadAclAction.NodeRequest, NodeReloadResult> {
+
+  private final ACLService aclService;
+  private final ACLIndexWatcher aclIndexWatcher;
+
+  @Inject
+  public TransportReloadAclAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                  ClusterService clusterService, TransportService transportService,
+                                  ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                  ACLService aclService, ACLIndexWatcher aclIndexWatcher) {
+    super(settings, ReloadAclAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+        indexNameExpressionResolver, ReloadAclRequest.class, NodeRequest.class, ThreadPool.Names.MANAGEMENT);
+    this.aclService = aclService;
+    this.aclIndexWatcher = aclIndexWatcher;
+  }
+
+  @Override
+  protected ReloadAclResponse newResponse(ReloadAclRequest request, AtomicReferenceArray responses) {
+    List<NodeReloadResult> nodes = new ArrayList<>();
+    for (int i = 0; i < responses.length(); i++) {
+      Object r = responses.get(i);
+      if (r instanceof NodeReloadResult) {
+        nodes.add((NodeReloadResult) r);
+      }
+    }
+    return new ReloadAclResponse(clusterName, nodes.toArray(new NodeReloadResult[nodes.size()]));
+  }
+
+  @Override
+  protected NodeRequest newNodeRequest(String nodeId, ReloadAclRequest request) {
+    return new NodeRequest(request, nodeId);
+  }
+
+  @Override
+  protected NodeReloadResult newNodeResponse() {
+    return new NodeReloadResult();
+  }
+
+  @Override
+  protected NodeReloadResult nodeOperation(NodeRequest request) {
+    if (aclIndexWatcher.isEnabled()) {
+      return new NodeReloadResult(clusterService.localNode(), aclIndexWatcher.poll(true));
+    }
+    return new NodeReloadResult(clusterService.localNode(), aclService.reload());
+  }
+
+  @Override
+  protected boolean accumulateExceptions() {
+    return false;
+  }
+
+  public static class NodeRequest extends BaseNodeRequest {
+
+    public NodeRequest() {
+    }
+
+    NodeRequest(ReloadAclRequest request, String nodeId) {
+      super(request, nodeId);
+    }
+  }
+}
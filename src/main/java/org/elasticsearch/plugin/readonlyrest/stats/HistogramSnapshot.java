@@ -0,0 +1,101 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Point in time copy of a LatencyHistogram, that can travel between nodes and be merged.
+ */
+public class HistogramSnapshot implements Streamable, ToXContent {
+  private long[] counts;
+  private long sumNanos;
+
+  public HistogramSnapshot() {
+    this(new long[LatencyHistogram.BUCKETS], 0);
+  }
+
+  HistogramSnapshot(long[] counts, long sumNanos) {
+    this.counts = counts;
+    this.sumNanos = sumNanos;
+  }
+
+  public static HistogramSnapshot readHistogramSnapshot(StreamInput in) throws IOException {
+    HistogramSnapshot h = new HistogramSnapshot();
+    h.readFrom(in);
+    return h;
+  }
+
+  public long getCount() {
+    long c = 0;
+    for (long n : counts) {
+      c += n;
+    }
+    return c;
+  }
+
+  public long getSumNanos() {
+    return sumNanos;
+  }
+
+  /**
+   * @return the number of durations in the bucket (not cumulative)
+   */
+  public long getBucketCount(int bucket) {
+    return counts[bucket];
+  }
+
+  /**
+   * @return an upper bound of the q-quantile (0 < q <= 1), 0 if empty
+   */
+  public long percentileNanos(double q) {
+    long count = getCount();
+    if (count == 0) {
+      return 0;
+    }
+    long target = (long) Math.ceil(q * count);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return LatencyHistogram.upperBoundNanos(i);
+      }
+    }
+    return LatencyHistogram.upperBoundNanos(counts.length - 1);
+  }
+
+  public HistogramSnapshot merge(HistogramSnapshot other) {
+    long[] merged = new long[counts.length];
+    for (int i = 0; i < counts.length; i++) {
+      merged[i] = counts[i] + other.counts[i];
+    }
+    return new HistogramSnapshot(merged, sumNanos + other.sumNanos);
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    counts = in.readVLongArray();
+    sumNanos = in.readVLong();
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    out.writeVLongArray(counts);
+    out.writeVLong(sumNanos);
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    long count = getCount();
+    builder.field("count", count);
+    builder.field("mean_nanos", count == 0 ? 0 : sumNanos / count);
+    builder.field("p50_nanos", percentileNanos(0.5));
+    builder.field("p90_nanos", percentileNanos(0.9));
+    builder.field("p99_nanos", percentileNanos(0.99));
+    return builder;
+  }
+}
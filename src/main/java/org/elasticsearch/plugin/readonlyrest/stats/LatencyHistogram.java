@@ -0,0 +1,47 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed memory latency histogram with power of two buckets: bucket i counts the durations up to
+ * 2^(i + 7) nanoseconds (128ns, 256ns... about 1s), the last bucket counts all the longer ones.
+ */
+public class LatencyHistogram {
+  public static final int BUCKETS = 25;
+  private static final int MIN_SHIFT = 7;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+  // Striped, as every request adds to it
+  private final CounterMetric sumNanos = new CounterMetric();
+
+  public void record(long nanos) {
+    buckets.incrementAndGet(bucketOf(nanos));
+    sumNanos.inc(Math.max(0, nanos));
+  }
+
+  static int bucketOf(long nanos) {
+    if (nanos <= 1) {
+      return 0;
+    }
+    // ceil(log2(nanos))
+    int log = 64 - Long.numberOfLeadingZeros(nanos - 1);
+    return Math.max(0, Math.min(BUCKETS - 1, log - MIN_SHIFT));
+  }
+
+  /**
+   * @return the highest duration counted in the bucket, Long.MAX_VALUE for the last one
+   */
+  public static long upperBoundNanos(int bucket) {
+    return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : 1L << (bucket + MIN_SHIFT);
+  }
+
+  public HistogramSnapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = buckets.get(i);
+    }
+    return new HistogramSnapshot(counts, sumNanos.count());
+  }
+}
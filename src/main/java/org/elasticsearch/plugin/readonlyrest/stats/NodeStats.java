@@ -0,0 +1,45 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+/**
+ * The stats of one node, as answered to the nodes stats action.
+ */
+public class NodeStats extends BaseNodeResponse {
+  private ReadonlyRestStats stats;
+
+  NodeStats() {
+  }
+
+  public NodeStats(DiscoveryNode node, ReadonlyRestStats stats) {
+    super(node);
+    this.stats = stats;
+  }
+
+  public static NodeStats readNodeStats(StreamInput in) throws IOException {
+    NodeStats s = new NodeStats();
+    s.readFrom(in);
+    return s;
+  }
+
+  public ReadonlyRestStats getStats() {
+    return stats;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    super.readFrom(in);
+    stats = ReadonlyRestStats.readReadonlyRestStats(in);
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    super.writeTo(out);
+    stats.writeTo(out);
+  }
+}
@@ -0,0 +1,163 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockStats;
+
+import java.util.List;
+
+/**
+ * Renders the stats in the Prometheus text exposition format (version 0.0.4), one series per node.
+ */
+public class PrometheusFormat {
+  public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final double NANOS_PER_SECOND = 1e9;
+
+  private final StringBuilder sb = new StringBuilder();
+
+  private PrometheusFormat() {
+  }
+
+  public static String format(ReadonlyRestStatsResponse response) {
+    PrometheusFormat f = new PrometheusFormat();
+    f.header("readonlyrest_acl_checks_total", "counter", "Requests evaluated against the ACL");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_acl_checks_total", labels(n), n.getStats().getChecks());
+    }
+    f.header("readonlyrest_acl_allowed_total", "counter", "Evaluated requests that matched an allow block");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_acl_allowed_total", labels(n), n.getStats().getAllowed());
+    }
+    f.header("readonlyrest_acl_latency_seconds", "histogram", "Time spent evaluating the ACL");
+    for (NodeStats n : response.getNodes()) {
+      f.histogram("readonlyrest_acl_latency_seconds", labels(n), n.getStats().getLatency());
+    }
+
+    f.header("readonlyrest_block_checks_total", "counter", "Requests checked against the block");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        f.sample("readonlyrest_block_checks_total", labels(n, i, b), b.getChecks());
+      }
+    }
+    f.header("readonlyrest_block_matches_total", "counter", "Requests that matched the block");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        f.sample("readonlyrest_block_matches_total", labels(n, i, b), b.getMatches());
+      }
+    }
+    f.header("readonlyrest_block_latency_seconds", "histogram", "Time spent checking the block");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        f.histogram("readonlyrest_block_latency_seconds", labels(n, i, b), b.getLatency());
+      }
+    }
+
+    f.header("readonlyrest_rule_evaluations_total", "counter", "Evaluations of the rule");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        for (BlockStats.RuleEntry r : b.getRules()) {
+          f.sample("readonlyrest_rule_evaluations_total", labels(n, i, b, r), r.getEvaluated());
+        }
+      }
+    }
+    f.header("readonlyrest_rule_rejections_total", "counter", "Evaluations of the rule that rejected the request");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        for (BlockStats.RuleEntry r : b.getRules()) {
+          f.sample("readonlyrest_rule_rejections_total", labels(n, i, b, r), r.getRejected());
+        }
+      }
+    }
+    f.header("readonlyrest_rule_latency_seconds", "histogram", "Time spent evaluating the rule");
+    for (NodeStats n : response.getNodes()) {
+      List<BlockStats> blocks = n.getStats().getBlocks();
+      for (int i = 0; i < blocks.size(); i++) {
+        BlockStats b = blocks.get(i);
+        for (BlockStats.RuleEntry r : b.getRules()) {
+          f.histogram("readonlyrest_rule_latency_seconds", labels(n, i, b, r), r.getLatency());
+        }
+      }
+    }
+
+    f.header("readonlyrest_body_length_rejected_requests_total", "counter", "Requests rejected before their body was received");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_body_length_rejected_requests_total", labels(n), n.getStats().getBodyLengthRejectedRequests());
+    }
+    f.header("readonlyrest_body_length_rejected_bytes_total", "counter", "Body bytes of the requests rejected before their body was received");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_body_length_rejected_bytes_total", labels(n), n.getStats().getBodyLengthRejectedBytes());
+    }
+
+    f.header("readonlyrest_audit_enqueued_total", "counter", "Audit records accepted in the buffer");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_audit_enqueued_total", labels(n), n.getStats().getAuditEnqueued());
+    }
+    f.header("readonlyrest_audit_dropped_total", "counter", "Audit records lost because the buffer was full");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_audit_dropped_total", labels(n), n.getStats().getAuditDropped());
+    }
+    f.header("readonlyrest_audit_written_total", "counter", "Audit records written, once per sink");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_audit_written_total", labels(n), n.getStats().getAuditWritten());
+    }
+    f.header("readonlyrest_audit_failed_total", "counter", "Audit records a sink failed to write");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_audit_failed_total", labels(n), n.getStats().getAuditFailed());
+    }
+    f.header("readonlyrest_audit_pending", "gauge", "Audit records waiting in the buffer");
+    for (NodeStats n : response.getNodes()) {
+      f.sample("readonlyrest_audit_pending", labels(n), n.getStats().getAuditPending());
+    }
+    return f.sb.toString();
+  }
+
+  private static String labels(NodeStats n) {
+    return "node=\"" + escape(n.getNode().name()) + "\"";
+  }
+
+  // Block names need not be unique: the position of the block in the ACL tells them apart
+  private static String labels(NodeStats n, int index, BlockStats b) {
+    return labels(n) + ",block=\"" + escape(b.getName()) + "\",index=\"" + index + "\"";
+  }
+
+  private static String labels(NodeStats n, int index, BlockStats b, BlockStats.RuleEntry r) {
+    return labels(n, index, b) + ",rule=\"" + escape(r.getKey()) + "\"";
+  }
+
+  static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+    return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  private void header(String name, String type, String help) {
+    sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private void sample(String name, String labels, long value) {
+    sb.append(name).append('{').append(labels).append("} ").append(value).append('\n');
+  }
+
+  private void histogram(String name, String labels, HistogramSnapshot h) {
+    long cumulative = 0;
+    for (int i = 0; i < LatencyHistogram.BUCKETS - 1; i++) {
+      cumulative += h.getBucketCount(i);
+      sb.append(name).append("_bucket{").append(labels).append(",le=\"")
+          .append(LatencyHistogram.upperBoundNanos(i) / NANOS_PER_SECOND).append("\"} ").append(cumulative).append('\n');
+    }
+    long count = h.getCount();
+    sb.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ").append(count).append('\n');
+    sb.append(name).append("_sum{").append(labels).append("} ").append(h.getSumNanos() / NANOS_PER_SECOND).append('\n');
+    sb.append(name).append("_count{").append(labels).append("} ").append(count).append('\n');
+  }
+}
@@ -0,0 +1,223 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.plugin.readonlyrest.BodyLengthLimitStats;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockStats;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Point in time copy of all the counters of the plugin on a node: ACL, blocks and rules, early body length
+ * rejections and audit log. Counters of several nodes can be added up.
+ */
+public class ReadonlyRestStats implements Streamable, ToXContent {
+  private long checks;
+  private long allowed;
+  private HistogramSnapshot latency;
+  private List<BlockStats> blocks;
+  private long bodyLengthRejectedRequests;
+  private long bodyLengthRejectedBytes;
+  private long auditEnqueued;
+  private long auditDropped;
+  private long auditHighWater;
+  private long auditWritten;
+  private long auditFailed;
+  private long auditPending;
+
+  ReadonlyRestStats() {
+  }
+
+  public static ReadonlyRestStats collect(ACL acl, BodyLengthLimitStats bodyLengthLimitStats, AuditLog auditLog) {
+    ReadonlyRestStats s = new ReadonlyRestStats();
+    s.checks = acl.getChecks();
+    s.allowed = acl.getAllowed();
+    s.latency = acl.getLatency();
+    List<BlockStats> blocks = new ArrayList<>(acl.getBlocks().size());
+    for (Block b : acl.getBlocks()) {
+      blocks.add(b.getStats());
+    }
+    s.blocks = Collections.unmodifiableList(blocks);
+    s.bodyLengthRejectedRequests = bodyLengthLimitStats.getRejectedRequests();
+    s.bodyLengthRejectedBytes = bodyLengthLimitStats.getRejectedBytes();
+    s.auditEnqueued = auditLog.getEnqueued();
+    s.auditDropped = auditLog.getDropped();
+    s.auditHighWater = auditLog.getHighWaterEvents();
+    s.auditWritten = auditLog.getWritten();
+    s.auditFailed = auditLog.getFailed();
+    s.auditPending = auditLog.getPending();
+    return s;
+  }
+
+  public static ReadonlyRestStats readReadonlyRestStats(StreamInput in) throws IOException {
+    ReadonlyRestStats s = new ReadonlyRestStats();
+    s.readFrom(in);
+    return s;
+  }
+
+  /**
+   * Add up the counters of another node. Blocks are matched by position and name: nodes should share the same ACL.
+   */
+  public ReadonlyRestStats merge(ReadonlyRestStats other) {
+    ReadonlyRestStats s = new ReadonlyRestStats();
+    s.checks = checks + other.checks;
+    s.allowed = allowed + other.allowed;
+    s.latency = latency.merge(other.latency);
+    // Block names need not be unique
+    Map<String, BlockStats> merged = new LinkedHashMap<>();
+    for (int i = 0; i < blocks.size(); i++) {
+      merged.put(i + ":" + blocks.get(i).getName(), blocks.get(i));
+    }
+    for (int i = 0; i < other.blocks.size(); i++) {
+      BlockStats b = other.blocks.get(i);
+      String key = i + ":" + b.getName();
+      BlockStats mine = merged.get(key);
+      merged.put(key, mine == null ? b : mine.merge(b));
+    }
+    s.blocks = Collections.unmodifiableList(new ArrayList<>(merged.values()));
+    s.bodyLengthRejectedRequests = bodyLengthRejectedRequests + other.bodyLengthRejectedRequests;
+    s.bodyLengthRejectedBytes = bodyLengthRejectedBytes + other.bodyLengthRejectedBytes;
+    s.auditEnqueued = auditEnqueued + other.auditEnqueued;
+    s.auditDropped = auditDropped + other.auditDropped;
+    s.auditHighWater = auditHighWater + other.auditHighWater;
+    s.auditWritten = auditWritten + other.auditWritten;
+    s.auditFailed = auditFailed + other.auditFailed;
+    s.auditPending = auditPending + other.auditPending;
+    return s;
+  }
+
+  public long getChecks() {
+    return checks;
+  }
+
+  public long getAllowed() {
+    return allowed;
+  }
+
+  public HistogramSnapshot getLatency() {
+    return latency;
+  }
+
+  public List<BlockStats> getBlocks() {
+    return blocks;
+  }
+
+  public long getBodyLengthRejectedRequests() {
+    return bodyLengthRejectedRequests;
+  }
+
+  public long getBodyLengthRejectedBytes() {
+    return bodyLengthRejectedBytes;
+  }
+
+  public long getAuditEnqueued() {
+    return auditEnqueued;
+  }
+
+  public long getAuditDropped() {
+    return auditDropped;
+  }
+
+  public long getAuditHighWater() {
+    return auditHighWater;
+  }
+
+  public long getAuditWritten() {
+    return auditWritten;
+  }
+
+  public long getAuditFailed() {
+    return auditFailed;
+  }
+
+  public long getAuditPending() {
+    return auditPending;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    checks = in.readVLong();
+    allowed = in.readVLong();
+    latency = HistogramSnapshot.readHistogramSnapshot(in);
+    int size = in.readVInt();
+    List<BlockStats> tmp = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      tmp.add(BlockStats.readBlockStats(in));
+    }
+    blocks = Collections.unmodifiableList(tmp);
+    bodyLengthRejectedRequests = in.readVLong();
+    bodyLengthRejectedBytes = in.readVLong();
+    auditEnqueued = in.readVLong();
+    auditDropped = in.readVLong();
+    auditHighWater = in.readVLong();
+    auditWritten = in.readVLong();
+    auditFailed = in.readVLong();
+    auditPending = in.readVLong();
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    out.writeVLong(checks);
+    out.writeVLong(allowed);
+    latency.writeTo(out);
+    out.writeVInt(blocks.size());
+    for (BlockStats b : blocks) {
+      b.writeTo(out);
+    }
+    out.writeVLong(bodyLengthRejectedRequests);
+    out.writeVLong(bodyLengthRejectedBytes);
+    out.writeVLong(auditEnqueued);
+    out.writeVLong(auditDropped);
+    out.writeVLong(auditHighWater);
+    out.writeVLong(auditWritten);
+    out.writeVLong(auditFailed);
+    out.writeVLong(auditPending);
+  }
+
+  /**
+   * Writes the fields only, the caller opens and closes the object.
+   */
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.startObject("acl");
+    builder.field("checks", checks);
+    builder.field("allowed", allowed);
+    builder.field("forbidden", checks - allowed);
+    builder.startObject("latency");
+    latency.toXContent(builder, params);
+    builder.endObject();
+    builder.endObject();
+
+    builder.startArray("blocks");
+    for (BlockStats b : blocks) {
+      b.toXContent(builder, params);
+    }
+    builder.endArray();
+
+    builder.startObject("body_length");
+    builder.field("rejected_requests", bodyLengthRejectedRequests);
+    builder.field("rejected_bytes", bodyLengthRejectedBytes);
+    builder.endObject();
+
+    builder.startObject("audit");
+    builder.field("enqueued", auditEnqueued);
+    builder.field("dropped", auditDropped);
+    builder.field("high_water", auditHighWater);
+    builder.field("written", auditWritten);
+    builder.field("failed", auditFailed);
+    builder.field("pending", auditPending);
+    builder.endObject();
+    return builder;
+  }
+}
@@ -0,0 +1,27 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.Action;
+import org.elasticsearch.client.ElasticsearchClient;
+
+/**
+ * Collects the stats of the plugin from the selected nodes. Being an action, it is subject to the ACL.
+ */
+public class ReadonlyRestStatsAction extends Action<ReadonlyRestStatsRequest, ReadonlyRestStatsResponse, ReadonlyRestStatsRequestBuilder> {
+
+  public static final ReadonlyRestStatsAction INSTANCE = new ReadonlyRestStatsAction();
+  public static final String NAME = "cluster:monitor/readonlyrest/stats";
+
+  private ReadonlyRestStatsAction() {
+    super(NAME);
+  }
+
+  @Override
+  public ReadonlyRestStatsRequestBuilder newRequestBuilder(ElasticsearchClient client) {
+    return new ReadonlyRestStatsRequestBuilder(client, this);
+  }
+
+  @Override
+  public ReadonlyRestStatsResponse newResponse() {
+    return new ReadonlyRestStatsResponse();
+  }
+}
@@ -0,0 +1,13 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.support.nodes.BaseNodesRequest;
+
+public class ReadonlyRestStatsRequest extends BaseNodesRequest<ReadonlyRestStatsRequest> {
+
+  public ReadonlyRestStatsRequest() {
+  }
+
+  public ReadonlyRestStatsRequest(String... nodesIds) {
+    super(nodesIds);
+  }
+}
@@ -0,0 +1,12 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.support.nodes.NodesOperationRequestBuilder;
+import org.elasticsearch.client.ElasticsearchClient;
+
+public class ReadonlyRestStatsRequestBuilder
+    extends NodesOperationRequestBuilder<ReadonlyRestStatsRequest, ReadonlyRestStatsResponse, ReadonlyRestStatsRequestBuilder> {
+
+  public ReadonlyRestStatsRequestBuilder(ElasticsearchClient client, ReadonlyRestStatsAction action) {
+    super(client, action, new ReadonlyRestStatsRequest());
+  }
+}
@@ -0,0 +1,69 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+public class ReadonlyRestStatsResponse extends BaseNodesResponse<NodeStats> implements ToXContent {
+
+  ReadonlyRestStatsResponse() {
+  }
+
+  public ReadonlyRestStatsResponse(ClusterName clusterName, NodeStats[] nodes) {
+    super(clusterName, nodes);
+  }
+
+  /**
+   * @return the counters of all the nodes added up, null if no node answered
+   */
+  public ReadonlyRestStats getTotal() {
+    ReadonlyRestStats total = null;
+    for (NodeStats n : nodes) {
+      total = total == null ? n.getStats() : total.merge(n.getStats());
+    }
+    return total;
+  }
+
+  @Override
+  public void readFrom(StreamInput in) throws IOException {
+    super.readFrom(in);
+    nodes = new NodeStats[in.readVInt()];
+    for (int i = 0; i < nodes.length; i++) {
+      nodes[i] = NodeStats.readNodeStats(in);
+    }
+  }
+
+  @Override
+  public void writeTo(StreamOutput out) throws IOException {
+    super.writeTo(out);
+    out.writeVInt(nodes.length);
+    for (NodeStats n : nodes) {
+      n.writeTo(out);
+    }
+  }
+
+  @Override
+  public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+    builder.field("cluster_name", getClusterName().value());
+    builder.startObject("nodes");
+    for (NodeStats n : nodes) {
+      builder.startObject(n.getNode().id());
+      builder.field("name", n.getNode().name());
+      n.getStats().toXContent(builder, params);
+      builder.endObject();
+    }
+    builder.endObject();
+    ReadonlyRestStats total = getTotal();
+    if (nodes.length > 1 && total != null) {
+      builder.startObject("total");
+      total.toXContent(builder, params);
+      builder.endObject();
+    }
+    return builder;
+  }
+}
@@ -0,0 +1,62 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.action.support.RestBuilderListener;
+import org.elasticsearch.rest.action.support.RestResponseListener;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+/**
+ * GET /_readonlyrest/stats: the stats of the local node.
+ * GET /_readonlyrest/stats/{nodeId}: the stats of the selected nodes (i.e. _all), with their total.
+ * Add format=prometheus for the Prometheus text format.
+ */
+public class RestReadonlyRestStatsAction extends BaseRestHandler {
+
+  @Inject
+  public RestReadonlyRestStatsAction(Settings settings, RestController controller, Client client) {
+    super(settings, controller, client);
+    controller.registerHandler(GET, "/_readonlyrest/stats", this);
+    controller.registerHandler(GET, "/_readonlyrest/stats/{nodeId}", this);
+  }
+
+  @Override
+  protected void handleRequest(RestRequest request, final RestChannel channel, Client client) {
+    String[] nodesIds = Strings.splitStringByCommaToArray(request.param("nodeId", "_local"));
+    ReadonlyRestStatsRequest statsRequest = new ReadonlyRestStatsRequest(nodesIds);
+    if (request.hasParam("timeout")) {
+      statsRequest.timeout(request.param("timeout"));
+    }
+
+    if ("prometheus".equals(request.param("format"))) {
+      client.execute(ReadonlyRestStatsAction.INSTANCE, statsRequest, new RestResponseListener<ReadonlyRestStatsResponse>(channel) {
+        @Override
+        public RestResponse buildResponse(ReadonlyRestStatsResponse response) {
+          return new BytesRestResponse(RestStatus.OK, PrometheusFormat.CONTENT_TYPE, PrometheusFormat.format(response));
+        }
+      });
+      return;
+    }
+
+    client.execute(ReadonlyRestStatsAction.INSTANCE, statsRequest, new RestBuilderListener<ReadonlyRestStatsResponse>(channel) {
+      @Override
+      public RestResponse buildResponse(ReadonlyRestStatsResponse response, XContentBuilder builder) throws Exception {
+        builder.startObject();
+        response.toXContent(builder, channel.request());
+        builder.endObject();
+        return new BytesRestResponse(RestStatus.OK, builder);
+      }
+    });
+  }
+}
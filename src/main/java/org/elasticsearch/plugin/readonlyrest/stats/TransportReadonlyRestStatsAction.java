@@ -0,0 +1,81 @@
+package org.elasticsearch.plugin.readonlyrest.stats;
+
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.nodes.BaseNodeRequest;
+import org.elasticsearch.action.support.nodes.TransportNodesAction;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.BodyLengthLimitStats;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class TransportReadonlyRestStatsAction extends TransportNodesAction<ReadonlyRestStatsRequest, ReadonlyRestStatsResponse,
+    TransportReadonlyRestStatsAction.NodeRequest, NodeStats> {
+
+  private final ACLService aclService;
+  private final BodyLengthLimitStats bodyLengthLimitStats;
+  private final AuditLog auditLog;
+
+  @Inject
+  public TransportReadonlyRestStatsAction(Settings settings, ClusterName clusterName, ThreadPool threadPool,
+                                          ClusterService clusterService, TransportService transportService,
+                                          ActionFilters actionFilters, IndexNameExpressionResolver indexNameExpressionResolver,
+                                          ACLService aclService, BodyLengthLimitStats bodyLengthLimitStats, AuditLog auditLog) {
+    super(settings, ReadonlyRestStatsAction.NAME, clusterName, threadPool, clusterService, transportService, actionFilters,
+        indexNameExpressionResolver, ReadonlyRestStatsRequest.class, NodeRequest.class, ThreadPool.Names.MANAGEMENT);
+    this.aclService = aclService;
+    this.bodyLengthLimitStats = bodyLengthLimitStats;
+    this.auditLog = auditLog;
+  }
+
+  @Override
+  protected ReadonlyRestStatsResponse newResponse(ReadonlyRestStatsRequest request, AtomicReferenceArray responses) {
+    List<NodeStats> nodes = new ArrayList<>();
+    for (int i = 0; i < responses.length(); i++) {
+      Object r = responses.get(i);
+      if (r instanceof NodeStats) {
+        nodes.add((NodeStats) r);
+      }
+    }
+    return new ReadonlyRestStatsResponse(clusterName, nodes.toArray(new NodeStats[nodes.size()]));
+  }
+
+  @Override
+  protected NodeRequest newNodeRequest(String nodeId, ReadonlyRestStatsRequest request) {
+    return new NodeRequest(request, nodeId);
+  }
+
+  @Override
+  protected NodeStats newNodeResponse() {
+    return new NodeStats();
+  }
+
+  @Override
+  protected NodeStats nodeOperation(NodeRequest request) {
+    return new NodeStats(clusterService.localNode(), ReadonlyRestStats.collect(aclService.get(), bodyLengthLimitStats, auditLog));
+  }
+
+  @Override
+  protected boolean accumulateExceptions() {
+    return false;
+  }
+
+  public static class NodeRequest extends BaseNodeRequest {
+
+    public NodeRequest() {
+    }
+
+    NodeRequest(ReadonlyRestStatsRequest request, String nodeId) {
+      super(request, nodeId);
+    }
+  }
+}
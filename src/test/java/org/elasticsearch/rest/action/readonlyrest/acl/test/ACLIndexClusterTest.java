@@ -0,0 +1,134 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.node.Node;
+import org.elasticsearch.node.internal.InternalSettingsPreparer;
+import org.elasticsearch.plugin.readonlyrest.ReadonlyRestPlugin;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexWatcher;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.reload.ReloadAclAction;
+import org.elasticsearch.plugin.readonlyrest.reload.ReloadAclRequest;
+import org.elasticsearch.plugin.readonlyrest.reload.ReloadAclResponse;
+import org.elasticsearch.plugins.Plugin;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Two nodes in this JVM, talking through the local transport: an ACL indexed on one node reaches both.
+ */
+public class ACLIndexClusterTest {
+  private static final String BLOCKS =
+      "readonlyrest:\n" +
+      "  access_control_rules:\n" +
+      "  - name: from the index\n" +
+      "    type: allow\n" +
+      "    methods: [GET]\n" +
+      "  - name: local\n" +
+      "    type: allow\n" +
+      "    hosts: [127.0.0.1]\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final List<Node> nodes = new ArrayList<>();
+
+  private static class PluginNode extends Node {
+    PluginNode(Settings settings) {
+      super(InternalSettingsPreparer.prepareEnvironment(settings, null), Version.CURRENT,
+          Collections.<Class<? extends Plugin>>singletonList(ReadonlyRestPlugin.class));
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    String clusterName = "acl-index-" + System.nanoTime();
+    for (int i = 0; i < 2; i++) {
+      Settings settings = Settings.builder()
+          .put("path.home", folder.newFolder().getAbsolutePath())
+          .put("cluster.name", clusterName)
+          .put("node.name", "node_" + i)
+          .put("node.local", true)
+          .put("http.enabled", false)
+          .put("readonlyrest.enable", true)
+          .put("readonlyrest.acl_index.enable", true)
+          .put("readonlyrest.acl_index.poll_interval", "100ms")
+          .put("readonlyrest.access_control_rules.0.name", "local")
+          .put("readonlyrest.access_control_rules.0.type", "allow")
+          .putArray("readonlyrest.access_control_rules.0.hosts", "127.0.0.1")
+          .build();
+      nodes.add(new PluginNode(settings).start());
+    }
+    nodes.get(0).client().admin().cluster().prepareHealth().setWaitForNodes("2").get();
+  }
+
+  @After
+  public void tearDown() {
+    for (Node n : nodes) {
+      n.close();
+    }
+  }
+
+  private static ACLService aclService(Node node) {
+    return node.injector().getInstance(ACLService.class);
+  }
+
+  private void assertEventuallyLoaded(long docVersion, int blocks) throws InterruptedException {
+    for (int i = 0; i < 100; i++) {
+      boolean loaded = true;
+      for (Node n : nodes) {
+        loaded &= n.injector().getInstance(ACLIndexWatcher.class).getAppliedVersion() == docVersion
+            && aclService(n).get().getBlocks().size() == blocks;
+      }
+      if (loaded) {
+        return;
+      }
+      Thread.sleep(100);
+    }
+    fail("version " + docVersion + " of the ACL was not loaded by all the nodes");
+  }
+
+  @Test
+  public final void testIndexedAclReachesAllTheNodes() throws Exception {
+    for (Node n : nodes) {
+      assertEquals(1, aclService(n).get().getBlocks().size());
+    }
+
+    long v1 = nodes.get(0).client().prepareIndex(".readonlyrest", ACLIndexWatcher.TYPE, ACLIndexWatcher.ID)
+        .setSource(ACLIndexWatcher.FIELD, BLOCKS).get().getVersion();
+    assertEventuallyLoaded(v1, 2);
+    for (Node n : nodes) {
+      assertEquals("from the index", aclService(n).get().getBlocks().get(0).getName());
+    }
+
+    // A broken version is not applied, the nodes keep the last good one
+    long v2 = nodes.get(1).client().prepareIndex(".readonlyrest", ACLIndexWatcher.TYPE, ACLIndexWatcher.ID)
+        .setSource(ACLIndexWatcher.FIELD, "readonlyrest:\n  access_control_rules:\n  - name: no type\n").get().getVersion();
+    assertEventuallyLoaded(v2, 2);
+    for (Node n : nodes) {
+      assertTrue(aclService(n).getLastReload().isFailed());
+    }
+
+    nodes.get(1).client().prepareIndex(".readonlyrest", ACLIndexWatcher.TYPE, ACLIndexWatcher.ID)
+        .setSource(ACLIndexWatcher.FIELD, BLOCKS).get();
+    ReloadAclResponse response = nodes.get(0).client().execute(ReloadAclAction.INSTANCE, new ReloadAclRequest()).get();
+    assertEquals(2, response.getNodes().length);
+    assertFalse(response.hasFailures());
+    for (Node n : nodes) {
+      assertEquals(2, aclService(n).get().getBlocks().size());
+      assertEquals(2, aclService(n).getLastReload().getReusedBlocks());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLIndexProtection;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ACLIndexProtectionTest {
+  private static final String RULES =
+      "readonlyrest:\n" +
+      "  access_control_rules:\n" +
+      "  - name: admin\n" +
+      "    type: allow\n" +
+      "    hosts: [10.0.0.1]\n" +
+      "    indices: [.readonlyrest, logs]\n" +
+      "  - name: everything\n" +
+      "    type: allow\n" +
+      "    indices: [\"*\"]\n";
+
+  private final ACL acl = new ACL(Settings.builder().loadFromSource(RULES).build());
+  private final ACLIndexProtection protection = new ACLIndexProtection(".readonlyrest");
+
+  private boolean allows(String address, String action, String... indices) throws Throwable {
+    RequestContext rc = ACLTest.mockReq("/", address, "", "", 0, Method.PUT, null, indices, action);
+    BlockExitResult result = acl.check(rc);
+    assertTrue(result.isMatch());
+    assertEquals(Block.Policy.ALLOW, result.getBlock().getPolicy());
+    return protection.allows(rc, result.getBlock());
+  }
+
+  @Test
+  public final void testWildcardBlockCannotWriteTheACLIndex() throws Throwable {
+    assertFalse(allows("1.1.1.1", "indices:data/write/index", ".readonlyrest"));
+    assertFalse(allows("1.1.1.1", "indices:data/write/bulk", "logs", ".readonlyrest"));
+    assertFalse(allows("1.1.1.1", "indices:admin/delete", ".readonly*"));
+    assertFalse(allows("1.1.1.1", "indices:admin/delete", "_all"));
+  }
+
+  @Test
+  public final void testWildcardBlockCanReadTheACLIndex() throws Throwable {
+    assertTrue(allows("1.1.1.1", "indices:data/read/get", ".readonlyrest"));
+  }
+
+  @Test
+  public final void testOtherIndicesAreNotConcerned() throws Throwable {
+    assertTrue(allows("1.1.1.1", "indices:data/write/index", "logs"));
+    assertTrue(allows("1.1.1.1", "indices:admin/delete", "logs-*"));
+  }
+
+  @Test
+  public final void testBlockNamingTheACLIndexCanWriteIt() throws Throwable {
+    assertTrue(allows("10.0.0.1", "indices:data/write/index", ".readonlyrest"));
+    assertTrue(allows("10.0.0.1", "indices:admin/delete", ".readonlyrest"));
+  }
+}
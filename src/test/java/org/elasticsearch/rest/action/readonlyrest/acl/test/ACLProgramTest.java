@@ -0,0 +1,273 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockStats;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Differential tests: the compiled ACL must take the very same decisions as the plain linear walk
+ * of all the blocks, evaluating all the rules of each block.
+ */
+public class ACLProgramTest {
+
+  private static final String P = "readonlyrest.access_control_rules.";
+
+  private static final String[][] HOSTS = {{"1.1.1.1"}, {"127.0.0.1", "192.168.1.0/24"}, {"10.0.0.0/8"}};
+  private static final String[][] METHODS = {{"GET"}, {"GET", "OPTIONS"}, {"POST", "DELETE"}};
+  private static final String[][] API_KEYS = {{"k1"}, {"k1", "k2"}};
+  private static final String[] AUTH_KEYS = {"alice:p455", "bob:p455"};
+  private static final String[] URI_RES = {"^/secret/.*", "^/index1/.*"};
+  private static final String[][] ACTIONS = {{"action1"}, {"action*"}, {"indices:data/read/*"}};
+  private static final String[][] INDICES = {{"index1"}, {"idx-*"}, {"index1", "other"}, {"<no-index>"}};
+  private static final String[] KIBANA = {"ro", "rw", "ro+"};
+  private static final String[][] GROUPS = {{"b"}, {"c"}};
+
+  private static final String[] R_URIS = {"/index1/_search", "/secret/_search", "/other/_doc"};
+  private static final String[] R_ADDRESSES = {"1.1.1.1", "127.0.0.1", "192.168.1.5", "10.1.2.3", "8.8.8.8"};
+  private static final String[] R_API_KEYS = {"", "k1", "k2"};
+  private static final String[] R_AUTH = {"", basic("alice:p455"), basic("bob:p455"), basic("carol:p455"), basic("alice:wrong")};
+  private static final Integer[] R_BODY = {0, 5, 20};
+  private static final Method[] R_METHODS = {Method.GET, Method.POST, Method.DELETE, Method.OPTIONS};
+  private static final String[] R_XFF = {null, "1.1.1.1"};
+  private static final String[][] R_INDICES = {null, {}, {"index1"}, {"idx-1"}, {"index1", "idx-2"}, {".kibana"}, {"other"}};
+  private static final String[] R_ACTIONS = {"action1", "action123", "indices:data/read/search", "indices:data/write/index", "cluster:monitor/health"};
+
+  private static String basic(String userAndPass) {
+    return "Basic " + Base64.encodeBytes(userAndPass.getBytes(Charsets.UTF_8));
+  }
+
+  private static <T> T pick(Random r, T[] values) {
+    return values[r.nextInt(values.length)];
+  }
+
+  private static Settings randomSettings(Random r, int blocksCount) {
+    Settings.Builder b = Settings.builder();
+    for (int i = 0; i < blocksCount; i++) {
+      String p = P + i + ".";
+      b.put(p + "name", "b" + i);
+      b.put(p + "type", r.nextInt(4) == 0 ? "forbid" : "allow");
+      int rules = 1 + r.nextInt(3);
+      for (int j = 0; j < rules; j++) {
+        switch (r.nextInt(11)) {
+          case 0:
+            b.putArray(p + "hosts", pick(r, HOSTS));
+            b.put(p + "accept_x-forwarded-for_header", r.nextBoolean());
+            break;
+          case 1:
+            b.putArray(p + "methods", pick(r, METHODS));
+            break;
+          case 2:
+            b.putArray(p + "api_keys", pick(r, API_KEYS));
+            break;
+          case 3:
+            b.put(p + "auth_key", pick(r, AUTH_KEYS));
+            break;
+          case 4:
+            b.put(p + "auth_key_sha1", Hashing.sha1().hashString("carol:p455", Charsets.UTF_8).toString());
+            break;
+          case 5:
+            b.put(p + "uri_re", pick(r, URI_RES));
+            break;
+          case 6:
+            b.put(p + "maxBodyLength", r.nextBoolean() ? 0 : 10);
+            break;
+          case 7:
+            b.putArray(p + "actions", pick(r, ACTIONS));
+            break;
+          case 8:
+            b.putArray(p + "indices", pick(r, INDICES));
+            break;
+          case 9:
+            b.put(p + "kibana_access", pick(r, KIBANA));
+            break;
+          default:
+            b.putArray(p + "groups", pick(r, GROUPS));
+        }
+      }
+    }
+    b.put("readonlyrest.users.0.username", "alice");
+    b.put("readonlyrest.users.0.auth_key", "alice:p455");
+    b.putArray("readonlyrest.users.0.groups", "b", "c");
+    b.put("readonlyrest.users.1.username", "bob");
+    b.put("readonlyrest.users.1.auth_key", "bob:p455");
+    b.putArray("readonlyrest.users.1.groups", "c");
+    return b.build();
+  }
+
+  private static RequestContext randomRequest(Random r) throws Throwable {
+    return ACLTest.mockReq(pick(r, R_URIS), pick(r, R_ADDRESSES), pick(r, R_API_KEYS), pick(r, R_AUTH), pick(r, R_BODY),
+        pick(r, R_METHODS), pick(r, R_XFF), pick(r, R_INDICES), pick(r, R_ACTIONS));
+  }
+
+  /**
+   * The reference engine: every block in order, every rule of the block, no shortcuts.
+   */
+  private static String linearDecision(ACL acl, RequestContext rc) {
+    for (Block b : acl.getBlocks()) {
+      boolean match = true;
+      for (Rule rule : b.getRules()) {
+        match &= rule.match(rc).isMatch();
+      }
+      if (match) {
+        return b.getName() + ":" + b.getPolicy();
+      }
+    }
+    return "NO_MATCH";
+  }
+
+  private static String decision(BlockExitResult res) {
+    if (!res.isMatch()) {
+      return "NO_MATCH";
+    }
+    return res.getBlock().getName() + ":" + res.getBlock().getPolicy();
+  }
+
+  private static Rule rule(Block b, String key) {
+    for (Rule r : b.getRules()) {
+      if (r.KEY.equals(key)) {
+        return r;
+      }
+    }
+    throw new AssertionError("no " + key + " rule in block " + b.getName());
+  }
+
+  private static long evaluated(Block b, String key) {
+    for (BlockStats.RuleEntry r : b.getStats().getRules()) {
+      if (r.getKey().equals(key)) {
+        return r.getEvaluated();
+      }
+    }
+    throw new AssertionError("no " + key + " rule in block " + b.getName());
+  }
+
+  @Test
+  public final void testRandomACLsDecideAsLinearWalk() throws Throwable {
+    Random r = new Random(20161018L);
+    for (int i = 0; i < 60; i++) {
+      Settings s = randomSettings(r, 1 + r.nextInt(25));
+      ACL acl = new ACL(s);
+      for (int j = 0; j < 25; j++) {
+        long seed = r.nextLong();
+        RequestContext rc = randomRequest(new Random(seed));
+        String expected = linearDecision(acl, rc);
+        assertEquals("ACL #" + i + ", request #" + j + ": " + s.getAsMap(), expected, decision(acl.check(rc)));
+        // A certain outcome of the headers phase is the final one, or no allow block could match anyway
+        BlockExitResult pre = acl.preCheck(randomRequest(new Random(seed)));
+        if (pre != null) {
+          String preDecision = decision(pre);
+          assertTrue("ACL #" + i + ", request #" + j + ": " + preDecision + " vs " + expected + ": " + s.getAsMap(),
+              preDecision.equals(expected) || (!pre.isMatch() && !expected.endsWith(":ALLOW")));
+        }
+      }
+    }
+  }
+
+  @Test
+  public final void testTestRulesDecideAsLinearWalk() throws Throwable {
+    ACL acl = ACLTest.mkACL("/src/test/test_rules.yml");
+    Random r = new Random(42L);
+    for (int j = 0; j < 300; j++) {
+      RequestContext rc = randomRequest(r);
+      assertEquals(linearDecision(acl, rc), decision(acl.check(rc)));
+    }
+  }
+
+  @Test
+  public final void testIdenticalRulesShareOnePredicate() throws Throwable {
+    Settings s = Settings.builder()
+        .put(P + "0.name", "0").put(P + "0.type", "allow").putArray(P + "0.hosts", "1.1.1.1").put(P + "0.api_keys", "k1")
+        .put(P + "1.name", "1").put(P + "1.type", "allow").putArray(P + "1.hosts", "1.1.1.1").put(P + "1.api_keys", "k2")
+        .put(P + "2.name", "2").put(P + "2.type", "allow").putArray(P + "2.hosts", "2.2.2.2")
+        .build();
+    ACL acl = new ACL(s);
+    Rule h0 = rule(acl.getBlocks().get(0), "hosts");
+    Rule h1 = rule(acl.getBlocks().get(1), "hosts");
+    Rule h2 = rule(acl.getBlocks().get(2), "hosts");
+    assertSame(h0, h1);
+    assertTrue(h0 != h2);
+    // hosts 1.1.1.1, hosts 2.2.2.2, api_keys k1, api_keys k2
+    assertEquals(4, acl.getPredicatesCount());
+
+    // Block 0 fails on the api key, block 1 takes the outcome of the hosts rule from the request
+    RequestContext rc = ACLTest.mockReq("/", "1.1.1.1", "k2", "", 0, Method.GET, null, null, null);
+    assertEquals("1:ALLOW", decision(acl.check(rc)));
+    // The rule is shared, its stats are not
+    assertEquals(0, evaluated(acl.getBlocks().get(0), "hosts"));
+    assertEquals(1, evaluated(acl.getBlocks().get(1), "hosts"));
+  }
+
+  @Test
+  public final void testReloadedBlocksShareRulesWithTheCarriedOverOnes() throws Throwable {
+    Settings.Builder b = Settings.builder()
+        .put(P + "0.name", "0").put(P + "0.type", "allow").putArray(P + "0.hosts", "1.1.1.1").put(P + "0.api_keys", "k1");
+    ACL before = new ACL(b.build());
+    b.put(P + "1.name", "1").put(P + "1.type", "allow").putArray(P + "1.hosts", "1.1.1.1").put(P + "1.api_keys", "k2");
+    ACL after = new ACL(b.build(), new ConfigurationHelper(Settings.EMPTY), DnsCacheTest.noDns(), before);
+
+    assertSame(before.getBlocks().get(0), after.getBlocks().get(0));
+    assertSame(rule(after.getBlocks().get(0), "hosts"), rule(after.getBlocks().get(1), "hosts"));
+
+    // The same request through both ACLs: each one has its own outcomes
+    RequestContext rc = ACLTest.mockReq("/", "1.1.1.1", "k2", "", 0, Method.GET, null, null, null);
+    assertEquals("NO_MATCH", decision(before.check(rc)));
+    assertEquals("1:ALLOW", decision(after.check(rc)));
+  }
+
+  @Test
+  public final void testReloadsNumberTheSlotsAfresh() throws Throwable {
+    ACL acl = new ACL(Settings.builder()
+        .put(P + "0.name", "0").put(P + "0.type", "allow").putArray(P + "0.hosts", "1.1.1.1").put(P + "0.api_keys", "k").build());
+    for (int i = 0; i < 10; i++) {
+      Settings s = Settings.builder()
+          .put(P + "0.name", "0").put(P + "0.type", "allow").putArray(P + "0.hosts", "1.1.1.1").put(P + "0.api_keys", "k")
+          .put(P + "1.name", "1").put(P + "1.type", "allow").put(P + "1.api_keys", "k" + i)
+          .build();
+      ACL next = new ACL(s, new ConfigurationHelper(Settings.EMPTY), DnsCacheTest.noDns(), acl);
+      assertEquals(3, next.getPredicatesCount());
+      RequestContext rc = ACLTest.mockReq("/", "1.1.1.1", "k" + i, "", 0, Method.GET, null, null, null);
+      assertEquals("1:ALLOW", decision(next.check(rc)));
+      assertEquals("NO_MATCH", decision(acl.check(rc)));
+      acl = next;
+    }
+  }
+
+  @Test
+  public final void testBlocksRejectingTheActionMethodOrKeyAreNotChecked() throws Throwable {
+    Settings s = Settings.builder()
+        .put(P + "0.name", "0").put(P + "0.type", "allow").putArray(P + "0.api_keys", "k1").putArray(P + "0.hosts", "1.1.1.1")
+        .put(P + "1.name", "1").put(P + "1.type", "allow").putArray(P + "1.methods", "POST").putArray(P + "1.hosts", "1.1.1.1")
+        .put(P + "2.name", "2").put(P + "2.type", "allow").putArray(P + "2.actions", "cluster:*").putArray(P + "2.hosts", "1.1.1.1")
+        .put(P + "3.name", "3").put(P + "3.type", "allow").putArray(P + "3.api_keys", "k2").putArray(P + "3.methods", "GET")
+        .build();
+    ACL acl = new ACL(s);
+
+    RequestContext rc = ACLTest.mockReq("/", "1.1.1.1", "k2", "", 0, Method.GET, null, null, "indices:data/read/search");
+    assertEquals("3:ALLOW", decision(acl.check(rc)));
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, acl.getBlocks().get(i).getStats().getChecks());
+    }
+    assertEquals(1, acl.getBlocks().get(3).getStats().getChecks());
+
+    // No key: the blocks asking for one are out
+    rc = ACLTest.mockReq("/", "1.1.1.1", "", "", 0, Method.POST, null, null, "cluster:monitor/health");
+    assertEquals("1:ALLOW", decision(acl.check(rc)));
+    assertEquals(0, acl.getBlocks().get(0).getStats().getChecks());
+  }
+
+}
@@ -0,0 +1,179 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.ACLService;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.DecisionCache;
+import org.elasticsearch.plugin.readonlyrest.acl.ReloadResult;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.authc.RestCredentials;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ACLServiceTest {
+  private static final String BLOCK_KEY =
+      "  - name: key\n" +
+      "    type: allow\n" +
+      "    api_keys: [k1]\n";
+  private static final String BLOCK_GET =
+      "  - name: get\n" +
+      "    type: allow\n" +
+      "    methods: [GET]\n";
+  private static final String BLOCK_GROUPS =
+      "  - name: groups\n" +
+      "    type: allow\n" +
+      "    groups: [admins]\n";
+  private static final String USERS =
+      "  users:\n" +
+      "  - username: alice\n" +
+      "    auth_key: alice:secret\n" +
+      "    groups: [admins]\n";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path file;
+  private DecisionCache decisionCache;
+  private ACLService service;
+
+  private static String config(String... blocks) {
+    StringBuilder sb = new StringBuilder("readonlyrest:\n  enable: true\n  access_control_rules:\n");
+    for (String b : blocks) {
+      sb.append(b);
+    }
+    return sb.toString();
+  }
+
+  private void write(String content) throws Exception {
+    Files.write(file, content.getBytes(Charsets.UTF_8));
+  }
+
+  private static RequestContext post(String apiKey) throws Throwable {
+    return ACLTest.mockReq("/idx/_search", "1.1.1.1", apiKey, "", 0, Method.POST, null, null, null);
+  }
+
+  private static RequestContext get() throws Throwable {
+    return ACLTest.mockReq("/idx/_search", "1.1.1.1", "", "", 0, Method.GET, null, null, null);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    file = folder.newFile("elasticsearch.yml").toPath();
+    Settings settings = Settings.builder().loadFromSource(config(BLOCK_KEY)).build();
+    decisionCache = new DecisionCache(true, 100, 60000);
+    service = new ACLService(settings, new ConfigurationHelper(settings), DnsCacheTest.noDns(), decisionCache,
+        new RestCredentials(settings), file);
+  }
+
+  @Test
+  public final void testReloadSwapsTheAcl() throws Throwable {
+    ACL before = service.get();
+    assertFalse(before.check(get()).isMatch());
+
+    write(config(BLOCK_KEY, BLOCK_GET));
+    ReloadResult result = service.reload();
+
+    assertFalse(result.isFailed());
+    assertEquals(2, result.getVersion());
+    assertEquals(2, result.getBlocks());
+    assertEquals(1, result.getReusedBlocks());
+    assertNotSame(before, service.get());
+    assertEquals("get", service.get().check(get()).getBlock().getName());
+    // Whoever still holds the old ACL gets the old decisions
+    assertFalse(before.check(get()).isMatch());
+  }
+
+  @Test
+  public final void testUnchangedBlocksAreCarriedOver() throws Throwable {
+    for (int i = 0; i < 10; i++) {
+      assertTrue(service.get().check(post("k1")).isMatch());
+    }
+    ACL before = service.get();
+
+    // A new block in front: the carried over block gets a program of its own, the old one must still work
+    write(config(BLOCK_GET, BLOCK_KEY));
+    service.reload();
+
+    assertSame(before.getBlocks().get(0), service.get().getBlocks().get(1));
+    assertEquals(10, service.get().getBlocks().get(1).getStats().getChecks());
+    assertTrue(before.check(post("k1")).isMatch());
+    assertTrue(service.get().check(post("k1")).isMatch());
+    assertSame(before.getAuthCache(), service.get().getAuthCache());
+  }
+
+  @Test
+  public final void testReloadResetsTheAuthCache() throws Throwable {
+    String token = Base64.encodeBytes("alice:secret".getBytes(Charsets.UTF_8));
+    AuthCache authCache = service.get().getAuthCache();
+    authCache.put(token, AuthCache.decode(token));
+    assertEquals(1, authCache.size());
+
+    write(config(BLOCK_KEY));
+    service.reload();
+    assertEquals(0, authCache.size());
+    authCache.put(token, AuthCache.decode(token));
+    assertEquals(1, authCache.size());
+
+    write(config(BLOCK_KEY) + "  auth_cache:\n    max_size: 0\n");
+    service.reload();
+    authCache.put(token, AuthCache.decode(token));
+    assertNull(authCache.get(token));
+  }
+
+  @Test
+  public final void testBlocksCheckingGroupsAreRebuiltWhenUsersChange() throws Throwable {
+    write(config(BLOCK_KEY, BLOCK_GROUPS) + USERS);
+    assertEquals(1, service.reload().getReusedBlocks());
+    assertEquals(2, service.reload().getReusedBlocks());
+
+    write(config(BLOCK_KEY, BLOCK_GROUPS) + USERS.replace("secret", "changed"));
+    assertEquals(1, service.reload().getReusedBlocks());
+  }
+
+  @Test
+  public final void testReloadInvalidatesTheDecisions() throws Throwable {
+    decisionCache.check(service.get(), post("k1"));
+    assertEquals(1, decisionCache.size());
+
+    write(config(BLOCK_KEY));
+    service.reload();
+    assertEquals(0, decisionCache.size());
+  }
+
+  @Test
+  public final void testFailedReloadKeepsTheAcl() throws Throwable {
+    ACL before = service.get();
+
+    write(config("  - name: broken\n    api_keys: [k1]\n"));
+    ReloadResult broken = service.reload();
+    assertTrue(broken.isFailed());
+    assertEquals(1, broken.getVersion());
+
+    // Half written file
+    write("readonlyrest:\n  enable: true\n");
+    assertTrue(service.reload().isFailed());
+
+    Files.delete(file);
+    assertTrue(service.reload().isFailed());
+
+    assertSame(before, service.get());
+    assertTrue(service.get().check(post("k1")).isMatch());
+  }
+}
@@ -0,0 +1,122 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.collect.ImmutableList;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditRecord;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditSink;
+import org.elasticsearch.plugin.readonlyrest.audit.RotatingFileAuditSink;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AuditLogTest {
+
+  private static class ListSink implements AuditSink {
+    final List<AuditRecord> records = new ArrayList<>();
+    final List<Integer> batches = new ArrayList<>();
+    boolean failing = false;
+    boolean closed = false;
+
+    @Override
+    public void write(List<AuditRecord> batch) throws IOException {
+      if (failing) {
+        throw new IOException("boom");
+      }
+      records.addAll(batch);
+      batches.add(batch.size());
+    }
+
+    @Override
+    public String getName() {
+      return "list";
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  private static AuditRecord record(String user) {
+    return new AuditRecord(1000L, true, "b1", "indices:data/read/search", "GET", "/idx/_search",
+        "127.0.0.1", user, new String[]{"idx"}, 0);
+  }
+
+  @Test
+  public final void testBatchesAndDrops() {
+    ListSink sink = new ListSink();
+    AuditLog log = new AuditLog(ImmutableList.<AuditSink>of(sink), 4, 3, 0);
+    for (int i = 0; i < 6; i++) {
+      log.log(record("u" + i));
+    }
+    assertEquals(4, log.getEnqueued());
+    assertEquals(2, log.getDropped());
+    assertEquals(4, log.getPending());
+    assertTrue(log.getHighWaterEvents() > 0);
+
+    log.flush();
+    assertEquals(ImmutableList.of(3, 1), sink.batches);
+    assertEquals("u0", sink.records.get(0).getUser());
+    assertEquals(4, log.getWritten());
+    assertEquals(0, log.getPending());
+
+    sink.failing = true;
+    log.log(record("u6"));
+    log.flush();
+    assertEquals(1, log.getFailed());
+  }
+
+  @Test
+  public final void testBackgroundWriter() throws InterruptedException {
+    ListSink sink = new ListSink();
+    AuditLog log = new AuditLog(ImmutableList.<AuditSink>of(sink), 64, 16, 10);
+    log.start();
+    for (int i = 0; i < 10; i++) {
+      log.log(record("u" + i));
+    }
+    for (int i = 0; i < 200 && log.getWritten() < 10; i++) {
+      Thread.sleep(10);
+    }
+    log.close();
+    assertEquals(10, log.getWritten());
+  }
+
+  @Test
+  public final void testCloseWritesAndClosesTheSinks() {
+    ListSink sink = new ListSink();
+    AuditLog log = new AuditLog(ImmutableList.<AuditSink>of(sink), 64, 16, 10);
+    log.log(record("u0"));
+    log.log(record("u1"));
+    log.close();
+    assertEquals(2, log.getWritten());
+    assertTrue(sink.closed);
+  }
+
+  @Test
+  public final void testFileRotation() throws IOException {
+    Path dir = Files.createTempDirectory("audit");
+    Path file = dir.resolve("audit.log");
+    int lineLength = record("u0").toJson().length() + 1;
+    RotatingFileAuditSink sink = new RotatingFileAuditSink(file, lineLength * 2, 2);
+    for (int i = 0; i < 7; i++) {
+      sink.write(ImmutableList.of(record("u" + i)));
+    }
+    sink.close();
+
+    List<String> current = Files.readAllLines(file, StandardCharsets.UTF_8);
+    assertEquals(1, current.size());
+    assertTrue(current.get(0).contains("\"user\":\"u6\""));
+    assertEquals(2, Files.readAllLines(dir.resolve("audit.log.1"), StandardCharsets.UTF_8).size());
+    assertTrue(Files.readAllLines(dir.resolve("audit.log.2"), StandardCharsets.UTF_8).get(0).contains("\"user\":\"u2\""));
+    assertFalse(Files.exists(dir.resolve("audit.log.3")));
+  }
+}
@@ -0,0 +1,76 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AuthCacheTest {
+
+  private static final String P = "readonlyrest.access_control_rules.";
+
+  private static String sha1(String s) {
+    return Hashing.sha1().hashString(s, Charsets.UTF_8).toString();
+  }
+
+  @Test
+  public final void testCredentials() {
+    AuthCache cache = new AuthCache(10, 60000);
+    String token = Base64.encodeBytes("alice:p455".getBytes(Charsets.UTF_8));
+    AuthCache.Credentials c = AuthCache.decode(token);
+    assertEquals("alice", c.getUser());
+    assertEquals(sha1("alice:p455"), c.getSha1());
+    assertNull(AuthCache.decode("%%% not base64"));
+
+    // Nothing gets in unless verified
+    assertNull(cache.get(token));
+    assertEquals(0, cache.size());
+    cache.put(token, c);
+    assertSame(c, cache.get(token));
+    assertEquals(1, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+
+    AuthCache disabled = new AuthCache(0, 0);
+    disabled.put(token, c);
+    assertNull(disabled.get(token));
+    assertEquals(0, disabled.size());
+  }
+
+  @Test
+  public final void testSharedByAllTheRules() throws Throwable {
+    Settings s = Settings.builder()
+        .put(P + "0.name", "0").put(P + "0.type", "allow").put(P + "0.auth_key_sha1", sha1("bob:p455")).put(P + "0.methods", "POST")
+        .put(P + "1.name", "1").put(P + "1.type", "allow").put(P + "1.auth_key_sha1", sha1("alice:p455")).put(P + "1.methods", "PUT")
+        .put(P + "2.name", "2").put(P + "2.type", "allow").putArray(P + "2.groups", "g")
+        .put("readonlyrest.users.0.username", "carol").put("readonlyrest.users.0.auth_key_sha1", sha1("carol:p455"))
+        .putArray("readonlyrest.users.0.groups", "g")
+        .build();
+    ACL acl = new ACL(s);
+    String carol = "Basic " + Base64.encodeBytes("carol:p455".getBytes(Charsets.UTF_8));
+    String alice = "Basic " + Base64.encodeBytes("alice:p455".getBytes(Charsets.UTF_8));
+    String mallory = "Basic " + Base64.encodeBytes("mallory:guess".getBytes(Charsets.UTF_8));
+
+    assertTrue(acl.check(ACLTest.mockReq("/", "1.1.1.1", "", carol, 0, Method.GET, null, null, null)).isMatch());
+    assertEquals(1, acl.getAuthCache().size());
+    // Not checked against her key: not verified
+    assertFalse(acl.check(ACLTest.mockReq("/", "1.1.1.1", "", alice, 0, Method.GET, null, null, null)).isMatch());
+    assertEquals(1, acl.getAuthCache().size());
+    assertTrue(acl.check(ACLTest.mockReq("/", "1.1.1.1", "", alice, 0, Method.PUT, null, null, null)).isMatch());
+    assertEquals(2, acl.getAuthCache().size());
+    // Credentials matching no user don't get in
+    assertFalse(acl.check(ACLTest.mockReq("/", "1.1.1.1", "", mallory, 0, Method.PUT, null, null, null)).isMatch());
+    assertEquals(2, acl.getAuthCache().size());
+  }
+}
@@ -0,0 +1,70 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.Block;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockStats;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BlockTest {
+
+  private static Block mkBlock(Settings s) {
+    AuthCache authCache = new AuthCache(100, 60000);
+    BlockContext context = new BlockContext(new UserRegistry(new ArrayList<Settings>(), authCache), DnsCacheTest.noDns(), authCache);
+    return new Block(s, context, Loggers.getLogger(BlockTest.class));
+  }
+
+  private static String order(Block b) {
+    StringBuilder sb = new StringBuilder();
+    for (Rule r : b.getRules()) {
+      sb.append(r.KEY).append(' ');
+    }
+    return sb.toString().trim();
+  }
+
+  @Test
+  public final void testCheapRulesFirstRewritingRulesLast() throws Throwable {
+    Block b = mkBlock(Settings.builder()
+        .put("name", "1").put("type", "allow")
+        .putArray("indices", "idx-*")
+        .put("auth_key_sha1", "a5aa590854b3806350b345ea154a52e3391aed32")
+        .putArray("actions", "indices:*")
+        .putArray("methods", "GET")
+        .build());
+    assertEquals("methods actions auth_key_sha1 indices", order(b));
+  }
+
+  @Test
+  public final void testMostSelectiveRulesMoveFirst() throws Throwable {
+    Block b = mkBlock(Settings.builder()
+        .put("name", "1").put("type", "allow")
+        .putArray("methods", "GET")
+        .putArray("api_keys", "k1")
+        .build());
+    assertEquals("api_keys methods", order(b));
+
+    // The methods rule rejects everything, the api key is always right: after a while methods goes first
+    for (int i = 0; i < 1100; i++) {
+      assertFalse(b.check(ACLTest.mockReq("/", "1.1.1.1", "k1", "", 0, Method.POST, null, null, null)).isMatch());
+    }
+    assertEquals("methods api_keys", order(b));
+
+    BlockStats stats = b.getStats();
+    assertEquals(1100, stats.getChecks());
+    assertEquals(0, stats.getMatches());
+    List<BlockStats.RuleEntry> rules = stats.getRules();
+    assertEquals("methods", rules.get(0).getKey());
+    assertEquals(Rule.CostClass.CHEAP, rules.get(0).getCostClass());
+  }
+}
@@ -0,0 +1,155 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.inject.util.Providers;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.BodyLengthLimitHandler;
+import org.elasticsearch.plugin.readonlyrest.BodyLengthLimitStats;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.http.DefaultHttpChunk;
+import org.jboss.netty.handler.codec.http.DefaultHttpRequest;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpMethod;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.handler.codec.http.HttpResponse;
+import org.jboss.netty.handler.codec.http.HttpResponseStatus;
+import org.jboss.netty.handler.codec.http.HttpVersion;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BodyLengthLimitHandlerTest {
+  private static final String RULES =
+      "readonlyrest:\n" +
+      "  enable: true\n" +
+      "  access_control_rules:\n" +
+      "  - name: small writes\n" +
+      "    type: allow\n" +
+      "    methods: [POST, PUT]\n" +
+      "    maxBodyLength: 10\n" +
+      "  - name: bulk\n" +
+      "    type: allow\n" +
+      "    uri_re: ^/_bulk\n" +
+      "    maxBodyLength: 100\n";
+
+  private BodyLengthLimitStats stats;
+  private DecoderEmbedder<Object> embedder;
+
+  private static ACL acl(String rules) {
+    return new ACL(Settings.builder().loadFromSource(rules).build());
+  }
+
+  private static HttpRequest request(HttpMethod method, String uri, long contentLength) {
+    HttpRequest r = new DefaultHttpRequest(HttpVersion.HTTP_1_1, method, uri);
+    HttpHeaders.setContentLength(r, contentLength);
+    return r;
+  }
+
+  @Before
+  public void setUp() {
+    stats = new BodyLengthLimitStats();
+    embedder = new DecoderEmbedder<>(new BodyLengthLimitHandler(Providers.of(acl(RULES)), stats));
+  }
+
+  private void assertRejected() {
+    Object out = embedder.poll();
+    assertTrue(out instanceof HttpResponse);
+    assertEquals(HttpResponseStatus.REQUEST_ENTITY_TOO_LARGE, ((HttpResponse) out).getStatus());
+  }
+
+  @Test
+  public final void testWithinLimitPasses() {
+    HttpRequest r = request(HttpMethod.POST, "/idx/doc", 5);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+    assertEquals(0, stats.getRejectedRequests());
+  }
+
+  @Test
+  public final void testDeclaredLengthOverLimitIsRejected() {
+    embedder.offer(request(HttpMethod.POST, "/idx/doc", 50));
+    assertRejected();
+    assertEquals(1, stats.getRejectedRequests());
+    assertEquals(50, stats.getRejectedBytes());
+  }
+
+  @Test
+  public final void testHighestLimitAmongApplicableBlocks() {
+    HttpRequest r = request(HttpMethod.POST, "/_bulk", 50);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+  }
+
+  @Test
+  public final void testNoApplicableBlockIsLeftToTheACL() {
+    HttpRequest r = request(HttpMethod.GET, "/idx/_search", 5000);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+    assertEquals(0, stats.getRejectedRequests());
+  }
+
+  @Test
+  public final void testChunkedBodyIsCounted() {
+    HttpRequest r = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/idx/doc");
+    r.setChunked(true);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+    embedder.offer(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(new byte[6])));
+    assertTrue(embedder.poll() instanceof DefaultHttpChunk);
+    embedder.offer(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(new byte[6])));
+    assertRejected();
+    assertEquals(12, stats.getRejectedBytes());
+    // The rest of the body is dropped
+    embedder.offer(new DefaultHttpChunk(ChannelBuffers.wrappedBuffer(new byte[6])));
+    assertNull(embedder.poll());
+  }
+
+  private DecoderEmbedder<Object> embedder(String rules) {
+    return new DecoderEmbedder<>(new BodyLengthLimitHandler(Providers.of(acl(rules)), stats));
+  }
+
+  @Test
+  public final void testUnlimitedAllowBlockThatMayMatchDisablesEarlyRejection() {
+    embedder = embedder(RULES +
+        "  - name: any write\n" +
+        "    type: allow\n" +
+        "    methods: [POST]\n");
+    HttpRequest r = request(HttpMethod.POST, "/idx/doc", 50);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+  }
+
+  @Test
+  public final void testUnlimitedAllowBlockThatCannotMatchIsIgnored() {
+    embedder = embedder(RULES +
+        "  - name: reads\n" +
+        "    type: allow\n" +
+        "    methods: [GET]\n");
+    embedder.offer(request(HttpMethod.POST, "/idx/doc", 50));
+    assertRejected();
+  }
+
+  @Test
+  public final void testExpensiveRulesAreTakenAsMatching() {
+    // The key is not hashed on the network thread, even though this request does not carry it
+    embedder = embedder(RULES +
+        "  - name: admin\n" +
+        "    type: allow\n" +
+        "    auth_key_sha1: d27aaf7fa3c1603948bb29b7339f2559dc02019a\n");
+    HttpRequest r = request(HttpMethod.POST, "/idx/doc", 50);
+    embedder.offer(r);
+    assertSame(r, embedder.poll());
+  }
+
+  @Test
+  public final void testNoBodyLengthRule() {
+    assertFalse(acl("readonlyrest:\n  access_control_rules:\n  - name: all\n    type: allow\n").isBodyLengthLimited());
+    assertTrue(acl(RULES).isBodyLengthLimited());
+  }
+}
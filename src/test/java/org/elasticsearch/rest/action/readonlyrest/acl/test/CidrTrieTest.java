@@ -0,0 +1,90 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.net.InetAddresses;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.CidrTrie;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.HostsRule;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CidrTrieTest {
+
+  private static byte[] ip(String s) {
+    return InetAddresses.forString(s).getAddress();
+  }
+
+  @Test
+  public final void testIPv4() {
+    CidrTrie t = new CidrTrie();
+    t.add("192.168.1.0/24");
+    t.add("10.0.0.0/8");
+    t.add("1.1.1.1");
+    assertTrue(t.contains(ip("192.168.1.0")));
+    assertTrue(t.contains(ip("192.168.1.255")));
+    assertFalse(t.contains(ip("192.168.2.1")));
+    assertTrue(t.contains(ip("10.200.3.4")));
+    assertTrue(t.contains(ip("1.1.1.1")));
+    assertFalse(t.contains(ip("1.1.1.2")));
+    assertFalse(t.contains(ip("::1")));
+  }
+
+  @Test
+  public final void testIPv6() {
+    CidrTrie t = new CidrTrie();
+    t.add("2001:db8::/32");
+    t.add("fe80::1");
+    assertTrue(t.contains(ip("2001:db8:1:2::3")));
+    assertFalse(t.contains(ip("2001:db9::1")));
+    assertTrue(t.contains(ip("fe80:0:0:0:0:0:0:1")));
+    assertFalse(t.contains(ip("fe80::2")));
+    assertFalse(t.contains(ip("32.1.13.184")));
+  }
+
+  @Test
+  public final void testWholeAddressSpace() {
+    CidrTrie t = new CidrTrie();
+    assertTrue(t.isEmpty());
+    t.add("0.0.0.0/0");
+    assertTrue(t.contains(ip("8.8.8.8")));
+    assertFalse(t.contains(ip("2001:db8::1")));
+  }
+
+  @Test
+  public final void testManyNetworks() {
+    CidrTrie t = new CidrTrie();
+    for (int i = 0; i < 256; i++) {
+      for (int j = 0; j < 16; j++) {
+        t.add("10." + i + "." + (j * 16) + ".0/28");
+      }
+    }
+    assertTrue(t.contains(ip("10.200.48.15")));
+    assertFalse(t.contains(ip("10.200.48.16")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public final void testInvalidPrefix() {
+    new CidrTrie().add("1.1.1.1/33");
+  }
+
+  @Test(expected = RuleConfigurationError.class)
+  public final void testInvalidHost() throws Throwable {
+    new HostsRule(Settings.builder().putArray("hosts", "1.1.1.1/x").build(), DnsCacheTest.noDns());
+  }
+
+  @Test
+  public final void testHostsRule() throws Throwable {
+    HostsRule r = new HostsRule(Settings.builder()
+        .putArray("hosts", "127.0.0.1", "2001:db8::/32", "proxy.example.com")
+        .put("accept_x-forwarded-for_header", true)
+        .build(), DnsCacheTest.noDns());
+    assertTrue(r.match(ACLTest.mockReq("/", "::1", "", "", 0, Method.GET, null, null, null)).isMatch());
+    assertTrue(r.match(ACLTest.mockReq("/", "2001:db8::7", "", "", 0, Method.GET, null, null, null)).isMatch());
+    assertFalse(r.match(ACLTest.mockReq("/", "1.2.3.4", "", "", 0, Method.GET, null, null, null)).isMatch());
+    assertTrue(r.match(ACLTest.mockReq("/", "1.2.3.4", "", "", 0, Method.GET, "2001:db8::1, 1.2.3.4", null, null)).isMatch());
+    assertTrue(r.match(ACLTest.mockReq("/", "1.2.3.4", "", "", 0, Method.GET, "proxy.example.com", null, null)).isMatch());
+  }
+}
@@ -0,0 +1,61 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
+import org.elasticsearch.plugin.readonlyrest.authc.CredentialTable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CredentialTableTest {
+
+  private static String basic(String userAndPass) {
+    return Base64.encodeBytes(userAndPass.getBytes(Charsets.UTF_8));
+  }
+
+  @Test
+  public final void testMatches() {
+    Settings.Builder b = Settings.builder();
+    for (int i = 0; i < 100; i++) {
+      b.put("readonlyrest.users." + i + ".username", "user" + i);
+      b.put("readonlyrest.users." + i + ".auth_key", "user" + i + ":p455");
+    }
+    b.put("readonlyrest.users.100.username", "hashed");
+    b.put("readonlyrest.users.100.auth_key_sha1", "a5aa590854b3806350b345ea154a52e3391aed32");
+    CredentialTable t = CredentialTable.fromSettings(b.build());
+
+    assertEquals(100, t.size());
+    for (int i = 0; i < 100; i++) {
+      assertTrue(t.matches(basic("user" + i + ":p455")));
+    }
+    assertFalse(t.matches(basic("user7:wrong")));
+    assertFalse(t.matches(basic("user100:p455")));
+    assertFalse(t.matches(null));
+    assertFalse(t.matches(""));
+    assertFalse(CredentialTable.EMPTY.matches(basic("user7:p455")));
+  }
+
+  @Test
+  public final void testMatchesHeader() {
+    CredentialTable t = CredentialTable.fromSettings(Settings.builder()
+        .put("readonlyrest.users.0.username", "user0")
+        .put("readonlyrest.users.0.auth_key", "user0:p455")
+        .build());
+    String token = basic("user0:p455");
+
+    assertTrue(t.matchesHeader("Basic " + token));
+    assertTrue(t.matchesHeader("  Basic   " + token + "  "));
+    assertFalse(t.matchesHeader("Basic " + token + "x"));
+    assertFalse(t.matchesHeader("Bearer " + token));
+    assertFalse(t.matchesHeader("Basic "));
+    assertFalse(t.matchesHeader(null));
+    // The token is read where the rules read it
+    String header = "x Basic " + token + " Basic y";
+    assertEquals(token, RequestCredentials.parse(header).getBasicToken());
+    assertTrue(t.matchesHeader(header));
+  }
+}
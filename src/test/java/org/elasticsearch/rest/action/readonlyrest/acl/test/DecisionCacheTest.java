@@ -0,0 +1,52 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.ConfigurationHelper;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.DecisionCache;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class DecisionCacheTest {
+  private static ACL acl;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    acl = ACLTest.mkACL("/src/test/test_rules.yml");
+  }
+
+  @Test
+  public final void testSameRequestIsServedFromCache() throws Throwable {
+    DecisionCache cache = new DecisionCache(true, 100, 60000);
+    BlockExitResult first = cache.check(acl, ACLTest.mockReq("/index1/_search", "1.1.1.1", "", "", 0, Method.GET, null, null, null));
+    BlockExitResult second = cache.check(acl, ACLTest.mockReq("/index1/_search", "1.1.1.1", "", "", 0, Method.GET, null, null, null));
+    assertEquals("8", first.getBlock().getName());
+    assertSame(first, second);
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public final void testDifferentCallersAreNotMixedUp() throws Throwable {
+    DecisionCache cache = new DecisionCache(true, 100, 60000);
+    assertEquals("4", cache.check(acl, ACLTest.mockReq("/index1/_search", "127.0.0.1", "", "", 0, Method.POST, null, null, null)).getBlock().getName());
+    assertFalse(cache.check(acl, ACLTest.mockReq("/index1/_search", "1.1.1.1", "", "", 0, Method.POST, null, null, null)).isMatch());
+    assertFalse(cache.check(acl, ACLTest.mockReq("/index1/_search", "1.1.1.1", "", "", 20, Method.GET, null, null, null)).isMatch());
+    assertEquals("3", cache.check(acl, ACLTest.mockReq("/index1/_search", "1.1.1.1", "1234567890", "", 0, Method.POST, null, null, null)).getBlock().getName());
+    assertEquals(4, cache.size());
+
+    cache.invalidateAll();
+    assertEquals(0, cache.size());
+  }
+
+  @Test
+  public final void testDisabledByDefault() {
+    assertFalse(new ConfigurationHelper(Settings.EMPTY).cacheEnabled);
+  }
+
+}
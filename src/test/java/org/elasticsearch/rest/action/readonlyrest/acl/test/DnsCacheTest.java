@@ -0,0 +1,197 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Ticker;
+import com.google.common.net.InetAddresses;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.DnsCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.HostsRule;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DnsCacheTest {
+
+  private static class StubResolver implements DnsCache.Resolver {
+    final Map<String, String[]> records = new HashMap<>();
+    int lookups = 0;
+
+    @Override
+    public InetAddress[] resolve(String hostname) throws UnknownHostException {
+      lookups++;
+      String[] r = records.get(hostname);
+      if (r == null) {
+        throw new UnknownHostException(hostname);
+      }
+      InetAddress[] out = new InetAddress[r.length];
+      for (int i = 0; i < r.length; i++) {
+        out[i] = InetAddresses.forString(r[i]);
+      }
+      return out;
+    }
+  }
+
+  private static class FakeTicker extends Ticker {
+    long nanos = 0;
+
+    @Override
+    public long read() {
+      return nanos;
+    }
+
+    void advance(long millis) {
+      nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+  }
+
+  /**
+   * A cache that never resolves anything, for tests not about host names.
+   */
+  public static DnsCache noDns() {
+    return new DnsCache(new StubResolver(), Ticker.systemTicker(), 60000, 10000, 0);
+  }
+
+  private static byte[] ip(String s) {
+    return InetAddresses.forString(s).getAddress();
+  }
+
+  @Test
+  public final void testTtlAndNegativeCaching() {
+    StubResolver resolver = new StubResolver();
+    FakeTicker ticker = new FakeTicker();
+    DnsCache dns = new DnsCache(resolver, ticker, 1000, 100, 0);
+    resolver.records.put("a.example.com", new String[]{"10.0.0.1", "2001:db8::1"});
+
+    dns.register("a.example.com");
+    dns.register("nope.example.com");
+    assertFalse(dns.isResolved("a.example.com"));
+    assertFalse(dns.matches("a.example.com", ip("10.0.0.1")));
+
+    dns.refresh();
+    assertEquals(2, resolver.lookups);
+    assertTrue(dns.matches("a.example.com", ip("10.0.0.1")));
+    assertTrue(dns.matches("a.example.com", ip("2001:db8::1")));
+    assertFalse(dns.matches("a.example.com", ip("10.0.0.2")));
+    assertTrue(dns.isResolved("nope.example.com"));
+    assertFalse(dns.matches("nope.example.com", ip("10.0.0.1")));
+
+    // Nothing expired
+    resolver.records.put("a.example.com", new String[]{"10.0.0.2"});
+    resolver.records.put("nope.example.com", new String[]{"10.0.0.3"});
+    dns.refresh();
+    assertEquals(2, resolver.lookups);
+
+    // The negative entry expired
+    ticker.advance(100);
+    dns.refresh();
+    assertEquals(3, resolver.lookups);
+    assertTrue(dns.matches("nope.example.com", ip("10.0.0.3")));
+    assertTrue(dns.matches("a.example.com", ip("10.0.0.1")));
+
+    // The positive entry expired
+    ticker.advance(900);
+    dns.refresh();
+    assertEquals(4, resolver.lookups);
+    assertFalse(dns.matches("a.example.com", ip("10.0.0.1")));
+    assertTrue(dns.matches("a.example.com", ip("10.0.0.2")));
+  }
+
+  @Test
+  public final void testRetainAllForgetsTheOtherNames() {
+    StubResolver resolver = new StubResolver();
+    resolver.records.put("a.example.com", new String[]{"10.0.0.1"});
+    resolver.records.put("b.example.com", new String[]{"10.0.0.2"});
+    DnsCache dns = new DnsCache(resolver, new FakeTicker(), 1000, 100, 0);
+    dns.register("a.example.com");
+    dns.register("b.example.com");
+    dns.refresh();
+    assertEquals(2, resolver.lookups);
+
+    dns.retainAll(Collections.singleton("a.example.com"));
+    assertTrue(dns.matches("a.example.com", ip("10.0.0.1")));
+    assertFalse(dns.isResolved("b.example.com"));
+    dns.refresh();
+    assertEquals(2, resolver.lookups);
+    assertFalse(dns.isResolved("b.example.com"));
+  }
+
+  @Test
+  public final void testHostsRuleUsesResolvedNames() throws Throwable {
+    StubResolver resolver = new StubResolver();
+    resolver.records.put("proxy.example.com", new String[]{"10.0.0.1"});
+    DnsCache dns = new DnsCache(resolver, new FakeTicker(), 1000, 100, 0);
+    HostsRule r = new HostsRule(Settings.builder().putArray("hosts", "proxy.example.com").build(), dns);
+
+    assertFalse(r.match(ACLTest.mockReq("/", "10.0.0.1", "", "", 0, Method.GET, null, null, null)).isMatch());
+    dns.refresh();
+    assertTrue(r.match(ACLTest.mockReq("/", "10.0.0.1", "", "", 0, Method.GET, null, null, null)).isMatch());
+    assertFalse(r.match(ACLTest.mockReq("/", "10.0.0.2", "", "", 0, Method.GET, null, null, null)).isMatch());
+  }
+
+  @Test
+  public final void testListenersAreToldOfNewResolutions() {
+    StubResolver resolver = new StubResolver();
+    resolver.records.put("a.example.com", new String[]{"10.0.0.1"});
+    FakeTicker ticker = new FakeTicker();
+    DnsCache dns = new DnsCache(resolver, ticker, 1000, 100, 0);
+    final int[] refreshes = {0};
+    dns.addListener(new DnsCache.Listener() {
+      @Override
+      public void onRefresh() {
+        refreshes[0]++;
+      }
+    });
+    dns.register("a.example.com");
+    dns.refresh();
+    assertEquals(1, refreshes[0]);
+    // Nothing expired, nothing published
+    dns.refresh();
+    assertEquals(1, refreshes[0]);
+    ticker.advance(1000);
+    dns.refresh();
+    assertEquals(2, refreshes[0]);
+  }
+
+  private static boolean refreshThreadAlive() {
+    for (Thread t : Thread.getAllStackTraces().keySet()) {
+      if (t.isAlive() && t.getName().contains("readonlyrest-dns")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public final void testStopEndsTheBackgroundRefresh() throws InterruptedException {
+    StubResolver resolver = new StubResolver();
+    DnsCache dns = new DnsCache(resolver, new FakeTicker(), 1000, 100, 60000);
+    dns.start();
+    dns.register("a.example.com");
+    assertTrue(refreshThreadAlive());
+
+    dns.stop();
+    for (int i = 0; i < 100 && refreshThreadAlive(); i++) {
+      Thread.sleep(50);
+    }
+    assertFalse(refreshThreadAlive());
+    // Not started again by the next reload
+    dns.register("b.example.com");
+    assertFalse(refreshThreadAlive());
+    dns.close();
+  }
+
+  @Test(expected = RuleConfigurationError.class)
+  public final void testHostNameWithMaskIsRejected() throws Throwable {
+    new HostsRule(Settings.builder().putArray("hosts", "proxy.example.com/24").build(), noDns());
+  }
+}
@@ -0,0 +1,64 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesAccessor;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndicesAccessorTest {
+
+  public static class PlainRequest extends ActionRequest<PlainRequest> {
+    private String[] indices = {"a", "b"};
+
+    public String[] indices() {
+      return indices;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+      return null;
+    }
+  }
+
+  public static class NoIndicesRequest extends ActionRequest<NoIndicesRequest> {
+    @Override
+    public ActionRequestValidationException validate() {
+      return null;
+    }
+  }
+
+  @Test
+  public final void testTypedApi() {
+    SearchRequest sr = new SearchRequest("a", "b");
+    IndicesAccessor a = IndicesAccessor.forClass(SearchRequest.class);
+    assertArrayEquals(new String[]{"a", "b"}, a.get(sr));
+    assertTrue(a.set(sr, new String[]{"c"}));
+    assertArrayEquals(new String[]{"c"}, sr.indices());
+    assertSame(a, IndicesAccessor.forClass(SearchRequest.class));
+  }
+
+  @Test
+  public final void testMethodHandles() {
+    PlainRequest pr = new PlainRequest();
+    IndicesAccessor a = IndicesAccessor.forClass(PlainRequest.class);
+    assertArrayEquals(new String[]{"a", "b"}, a.get(pr));
+    assertTrue(a.set(pr, new String[]{"c"}));
+    assertArrayEquals(new String[]{"c"}, pr.indices());
+  }
+
+  @Test
+  public final void testNoIndices() {
+    NoIndicesRequest r = new NoIndicesRequest();
+    IndicesAccessor a = IndicesAccessor.forClass(NoIndicesRequest.class);
+    assertNull(a.get(r));
+    assertFalse(a.canSet());
+    assertFalse(a.set(r, new String[]{"c"}));
+  }
+}
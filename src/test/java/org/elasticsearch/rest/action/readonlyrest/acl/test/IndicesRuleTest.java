@@ -0,0 +1,70 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.collect.ImmutableSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshot;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.impl.IndicesRule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndicesRuleTest {
+
+  private static MetaData metaData(long version, String... indices) {
+    MetaData.Builder b = MetaData.builder().version(version);
+    for (String i : indices) {
+      b.put(IndexMetaData.builder(i)
+          .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+          .numberOfShards(1)
+          .numberOfReplicas(0));
+    }
+    return b.build();
+  }
+
+  private static RequestContext search(IndicesSnapshot snapshot, String... indices) {
+    return new RequestContext(null, null, "indices:data/read/search", new SearchRequest(indices), snapshot);
+  }
+
+  @Test
+  public final void testAllowedIndicesFollowTheSnapshots() throws RuleNotConfiguredException {
+    IndicesRule rule = new IndicesRule(Settings.builder().putArray("indices", "logs-*").build());
+
+    IndicesSnapshot s1 = IndicesSnapshot.fromMetaData(metaData(1, "logs-1", "other"));
+    RequestContext rc = search(s1, "*");
+    assertTrue(rule.match(rc).isMatch());
+    assertEquals(ImmutableSet.of("logs-1"), rc.getIndices());
+
+    // Incremental update
+    IndicesSnapshot s2 = IndicesSnapshot.fromMetaData(metaData(2, "logs-1", "logs-2", "other"), s1);
+    assertEquals(ImmutableSet.of("logs-2"), s2.getAdded());
+    rc = search(s2, "*");
+    assertTrue(rule.match(rc).isMatch());
+    assertEquals(ImmutableSet.of("logs-1", "logs-2"), rc.getIndices());
+
+    IndicesSnapshot s3 = IndicesSnapshot.fromMetaData(metaData(3, "logs-2", "other"), s2);
+    assertEquals(ImmutableSet.of("logs-1"), s3.getRemoved());
+    rc = search(s3, "*");
+    assertTrue(rule.match(rc).isMatch());
+    assertEquals(ImmutableSet.of("logs-2"), rc.getIndices());
+
+    // Some snapshot was missed, everything is recomputed
+    IndicesSnapshot s5 = IndicesSnapshot.fromMetaData(metaData(5, "other", "logs-3"), IndicesSnapshot.fromMetaData(metaData(4)));
+    rc = search(s5, "*");
+    assertTrue(rule.match(rc).isMatch());
+    assertEquals(ImmutableSet.of("logs-3"), rc.getIndices());
+
+    // Expanding to existing indices, none of them allowed
+    assertFalse(rule.match(search(s5, "oth*")).isMatch());
+
+    // Expanding to nothing
+    assertTrue(rule.match(search(s5, "nothing*")).isMatch());
+  }
+}
@@ -0,0 +1,71 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.collect.ImmutableSet;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.IndicesSnapshot;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class IndicesSnapshotTest {
+
+  private static IndexMetaData.Builder index(String name) {
+    return IndexMetaData.builder(name)
+        .settings(Settings.builder().put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT))
+        .numberOfShards(1)
+        .numberOfReplicas(0);
+  }
+
+  @Test
+  public final void testIndicesAndAliases() {
+    MetaData md = MetaData.builder()
+        .version(7)
+        .put(index("logs-1").putAlias(AliasMetaData.builder("logs")))
+        .put(index("logs-2").putAlias(AliasMetaData.builder("logs")))
+        .put(index("other"))
+        .build();
+    IndicesSnapshot s = IndicesSnapshot.fromMetaData(md);
+
+    assertEquals(7, s.getVersion());
+    assertEquals(ImmutableSet.of("logs-1", "logs-2", "logs", "other"), s.getIndicesAndAliases());
+    assertTrue(s.contains("logs"));
+    assertFalse(s.contains("log"));
+    assertEquals(ImmutableSet.of("logs-1", "logs-2"), s.resolve("logs"));
+    assertEquals(ImmutableSet.of("other"), s.resolve("other"));
+    assertTrue(s.resolve("nope").isEmpty());
+  }
+
+  @Test
+  public final void testMatchPatterns() {
+    MetaData md = MetaData.builder()
+        .put(index("logs-1").putAlias(AliasMetaData.builder("logs")))
+        .put(index("logs-2"))
+        .put(index("other"))
+        .build();
+    IndicesSnapshot s = IndicesSnapshot.fromMetaData(md);
+
+    Set<String> m = s.match(ImmutableSet.of("logs*", "oth"));
+    assertEquals(ImmutableSet.of("logs-1", "logs-2", "logs"), m);
+    // Computed once for the same patterns
+    assertSame(m, s.match(new HashSet<>(Arrays.asList("oth", "logs*"))));
+    assertEquals(ImmutableSet.of("other"), s.match(ImmutableSet.of("+other", "-logs-1")));
+    assertTrue(s.match(ImmutableSet.of("nope*")).isEmpty());
+  }
+
+  @Test
+  public final void testEmpty() {
+    assertTrue(IndicesSnapshot.EMPTY.getIndicesAndAliases().isEmpty());
+    assertTrue(IndicesSnapshot.fromMetaData(MetaData.builder().build()).getIndicesAndAliases().isEmpty());
+  }
+}
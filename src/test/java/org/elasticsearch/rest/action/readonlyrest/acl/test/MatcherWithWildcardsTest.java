@@ -0,0 +1,102 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.collect.Sets;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.MatcherWithWildcards;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.WildcardAutomaton;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MatcherWithWildcardsTest {
+
+  private static String randomString(Random r, String alphabet, int maxLen) {
+    int len = r.nextInt(maxLen + 1);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < len; i++) {
+      sb.append(alphabet.charAt(r.nextInt(alphabet.length())));
+    }
+    return sb.toString();
+  }
+
+  // How wildcards used to be matched, one regex at a time
+  private static boolean regexMatch(List<String> patterns, String s) {
+    for (String p : patterns) {
+      String regex = ("\\Q" + p + "\\E").replace("*", "\\E.*\\Q");
+      if (Pattern.compile(regex).matcher(s).find()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public final void testAutomatonMatchesLikeRegexFind() {
+    Random r = new Random(7L);
+    for (int i = 0; i < 500; i++) {
+      List<String> patterns = new ArrayList<>();
+      int n = 1 + r.nextInt(6);
+      for (int j = 0; j < n; j++) {
+        String p = randomString(r, "ab-*\u00e8", 6);
+        if (!p.contains("*")) {
+          p += "*";
+        }
+        patterns.add(p);
+      }
+      WildcardAutomaton automaton = new WildcardAutomaton(patterns);
+      for (int j = 0; j < 50; j++) {
+        String s = randomString(r, "ab-c\u00e8", 10);
+        assertEquals(patterns + " vs '" + s + "'", regexMatch(patterns, s), automaton.matches(s));
+      }
+    }
+  }
+
+  @Test
+  public final void testManyPatterns() {
+    List<String> patterns = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      patterns.add("logstash-" + i + "-*");
+    }
+    WildcardAutomaton automaton = new WildcardAutomaton(patterns);
+    assertTrue(automaton.getStatesCount() > 0);
+    assertTrue(automaton.matches("logstash-42-2016.10.18"));
+    assertTrue(automaton.matches("logstash-499-"));
+    assertFalse(automaton.matches("logstash-500-2016.10.18"));
+    assertFalse(automaton.matches("logstash"));
+  }
+
+  @Test
+  public final void testMatcher() {
+    MatcherWithWildcards m = new MatcherWithWildcards(Sets.newHashSet("plain", "+plus", "-minus", "wild-*", "*"));
+    assertTrue(m.match("plain"));
+    assertTrue(m.match("plus"));
+    assertTrue(m.match("wild-1"));
+    assertTrue(m.match("anything"));
+    assertFalse(m.match("-anything"));
+
+    m = new MatcherWithWildcards(Sets.newHashSet("plain", "wild-*"));
+    assertFalse(m.match("plainer"));
+    assertTrue(m.match("wild-*"));
+    assertTrue(m.matchesAll(Sets.newHashSet("plain", "wild-1")));
+    assertFalse(m.matchesAll(Sets.newHashSet("plain", "other")));
+  }
+
+  @Test
+  public final void testFilterAllocatesOnlyOnPartialMatch() {
+    MatcherWithWildcards m = new MatcherWithWildcards(Sets.newHashSet("a", "b-*"));
+    Set<String> all = Sets.newHashSet("a", "b-1", "b-2");
+    Set<String> filtered = m.filter(all);
+    assertEquals(all, filtered);
+    assertTrue(m.filter(Sets.newHashSet("x", "y")).isEmpty());
+    assertEquals(Sets.newHashSet("a", "b-2"), m.filter(Sets.newHashSet("x", "a", "y", "b-2")));
+    assertSame(m.filter(Sets.newHashSet("x")), m.filter(Sets.newHashSet("y")));
+  }
+}
@@ -0,0 +1,61 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockExitResult;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+public class PreCheckTest {
+  private static final String P = "readonlyrest.access_control_rules.";
+
+  // 0: forbid 1.1.1.1 writing the secret index, 1: allow GET from anywhere, 2: allow 1.1.1.1 on its indices
+  private static final ACL ACL = new ACL(Settings.builder()
+      .put(P + "0.name", "secret").put(P + "0.type", "forbid")
+      .putArray(P + "0.hosts", "1.1.1.1").putArray(P + "0.indices", "secret")
+      .put(P + "1.name", "get").put(P + "1.type", "allow").putArray(P + "1.methods", "GET")
+      .put(P + "2.name", "indices").put(P + "2.type", "allow")
+      .putArray(P + "2.hosts", "1.1.1.1").putArray(P + "2.indices", "logs-*")
+      .build());
+
+  private static RequestContext rest(String address, Method method) throws Throwable {
+    // No action yet
+    return ACLTest.mockReq("/logs-1/_search", address, "", "", 0, method, null, null, null);
+  }
+
+  private static String decision(BlockExitResult res) {
+    return res == null ? "UNDECIDED" : res.isMatch() ? res.getBlock().getName() : "NO_MATCH";
+  }
+
+  @Test
+  public final void testFirstCertainBlockDecides() throws Throwable {
+    // The forbid block is out on the host, the next one only looks at the method
+    assertEquals("get", decision(ACL.preCheck(rest("2.2.2.2", Method.GET))));
+  }
+
+  @Test
+  public final void testPossibleBlockBeforeLeavesItToTheActionPhase() throws Throwable {
+    assertEquals("UNDECIDED", decision(ACL.preCheck(rest("1.1.1.1", Method.GET))));
+    assertEquals("UNDECIDED", decision(ACL.preCheck(rest("1.1.1.1", Method.POST))));
+  }
+
+  @Test
+  public final void testNoAllowBlockPossibleIsForbidden() throws Throwable {
+    BlockExitResult res = ACL.preCheck(rest("2.2.2.2", Method.POST));
+    assertEquals("NO_MATCH", decision(res));
+    assertFalse(res.isMatch());
+
+    // Only a forbid block may match: forbidden either way
+    ACL forbidOnly = new ACL(Settings.builder()
+        .put(P + "0.name", "secret").put(P + "0.type", "forbid").putArray(P + "0.indices", "secret")
+        .put(P + "1.name", "get").put(P + "1.type", "allow").putArray(P + "1.methods", "GET")
+        .build());
+    assertEquals("NO_MATCH", decision(forbidOnly.preCheck(rest("2.2.2.2", Method.POST))));
+    assertNull(forbidOnly.preCheck(rest("2.2.2.2", Method.GET)));
+  }
+}
@@ -0,0 +1,51 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.PagedBytesReference;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestBody;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RequestBodyTest {
+
+  @Test
+  public final void testPreview() throws Exception {
+    byte[] bytes = "{\"query\":{\"match_all\":{}}}".getBytes(Charsets.UTF_8);
+    RequestBody b = new RequestBody(new BytesArray(bytes));
+    assertEquals(bytes.length, b.length());
+    assertEquals("{\"query\":{\"match_all\":{}}}", b.preview(1000));
+    assertEquals("{\"query\"... (" + bytes.length + " bytes)", b.preview(8));
+    assertEquals('{', b.streamInput().readByte());
+
+    // Sliced array: the offset must be honoured
+    RequestBody sliced = new RequestBody(new BytesArray(bytes).slice(2, 5));
+    assertEquals("query", sliced.preview(100));
+  }
+
+  @Test
+  public final void testPagedBytes() {
+    byte[] bytes = new byte[100000];
+    for (int i = 0; i < bytes.length; i++) {
+      bytes[i] = (byte) ('a' + i % 26);
+    }
+    ByteArray pages = BigArrays.NON_RECYCLING_INSTANCE.newByteArray(bytes.length);
+    pages.set(0, bytes, 0, bytes.length);
+    BytesReference paged = new PagedBytesReference(BigArrays.NON_RECYCLING_INSTANCE, pages, bytes.length);
+    RequestBody b = new RequestBody(paged);
+    assertEquals(100000, b.length());
+    assertTrue(b.preview(26).startsWith("abcdefghijklmnopqrstuvwxyz..."));
+  }
+
+  @Test
+  public final void testEmpty() {
+    RequestBody b = new RequestBody(null);
+    assertTrue(b.isEmpty());
+    assertEquals("", b.preview(10));
+  }
+}
@@ -0,0 +1,60 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class RequestCredentialsTest {
+
+  private static final String TOKEN = Base64.encodeBytes("alice:p455".getBytes(Charsets.UTF_8));
+
+  @Test
+  public final void testParse() {
+    RequestCredentials c = RequestCredentials.parse("Basic " + TOKEN);
+    assertEquals("Basic", c.getScheme());
+    assertEquals(TOKEN, c.getToken());
+    assertEquals(TOKEN, c.getBasicToken());
+    assertEquals(TOKEN, RequestCredentials.parse("  Basic   " + TOKEN + "  ").getBasicToken());
+
+    c = RequestCredentials.parse("Bearer abc");
+    assertEquals("Bearer", c.getScheme());
+    assertEquals("abc", c.getToken());
+    assertNull(c.getBasicToken());
+
+    assertNull(RequestCredentials.parse("Basic ").getBasicToken());
+    assertNull(RequestCredentials.parse("").getScheme());
+    assertSame(RequestCredentials.NONE, RequestCredentials.parse(null));
+  }
+
+  @Test
+  public final void testDecodedOnce() {
+    AuthCache cache = new AuthCache(10, 60000);
+    RequestCredentials c = RequestCredentials.parse("Basic " + TOKEN);
+    AuthCache.Credentials decoded = c.getDecoded(cache);
+    assertEquals("alice", decoded.getUser());
+    assertSame(decoded, c.getDecoded(null));
+    assertNull(RequestCredentials.parse("Basic %%%").getDecoded(cache));
+    assertNull(RequestCredentials.NONE.getDecoded(cache));
+    assertEquals(0, cache.size());
+
+    c.verified(cache);
+    RequestCredentials.parse("Basic %%%").verified(cache);
+    assertEquals(1, cache.size());
+    assertSame(decoded, RequestCredentials.parse("Basic " + TOKEN).getDecoded(cache));
+  }
+
+  @Test
+  public final void testParsedOncePerRequest() throws Throwable {
+    RequestContext rc = ACLTest.mockReq("/", "1.1.1.1", "", "Basic " + TOKEN, 0, Method.GET, null, null, null);
+    assertSame(rc.getCredentials(), rc.getCredentials());
+    assertEquals(TOKEN, rc.getCredentials().getBasicToken());
+  }
+}
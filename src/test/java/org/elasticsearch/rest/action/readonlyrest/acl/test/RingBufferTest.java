@@ -0,0 +1,89 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.plugin.readonlyrest.audit.RingBuffer;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+  @Test
+  public final void testFifoAndBounded() {
+    RingBuffer<Integer> b = new RingBuffer<>(3);
+    assertEquals(4, b.capacity());
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 4; i++) {
+        assertTrue(b.offer(i));
+      }
+      assertFalse(b.offer(4));
+      assertEquals(4, b.size());
+      for (int i = 0; i < 4; i++) {
+        assertEquals(Integer.valueOf(i), b.poll());
+      }
+      assertNull(b.poll());
+      assertEquals(0, b.size());
+    }
+  }
+
+  @Test
+  public final void testDrainTo() {
+    RingBuffer<Integer> b = new RingBuffer<>(8);
+    for (int i = 0; i < 5; i++) {
+      b.offer(i);
+    }
+    List<Integer> out = new ArrayList<>();
+    assertEquals(3, b.drainTo(out, 3));
+    assertEquals(2, b.drainTo(out, 3));
+    assertEquals(0, b.drainTo(out, 3));
+    assertEquals(5, out.size());
+  }
+
+  @Test
+  public final void testConcurrentProducers() throws InterruptedException {
+    final RingBuffer<Integer> b = new RingBuffer<>(1024);
+    final AtomicInteger rejected = new AtomicInteger();
+    final int producers = 4;
+    final int perProducer = 10000;
+    Thread[] threads = new Thread[producers];
+    for (int p = 0; p < producers; p++) {
+      final int base = p * perProducer;
+      threads[p] = new Thread() {
+        @Override
+        public void run() {
+          for (int i = 0; i < perProducer; i++) {
+            if (!b.offer(base + i)) {
+              rejected.incrementAndGet();
+            }
+          }
+        }
+      };
+      threads[p].start();
+    }
+    Set<Integer> seen = new HashSet<>();
+    boolean alive = true;
+    while (alive) {
+      alive = false;
+      for (Thread t : threads) {
+        alive |= t.isAlive();
+      }
+      Integer e;
+      while ((e = b.poll()) != null) {
+        assertTrue(seen.add(e));
+      }
+    }
+    Integer e;
+    while ((e = b.poll()) != null) {
+      assertTrue(seen.add(e));
+    }
+    assertEquals(producers * perProducer, seen.size() + rejected.get());
+  }
+}
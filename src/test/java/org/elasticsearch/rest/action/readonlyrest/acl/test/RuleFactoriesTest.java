@@ -0,0 +1,82 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockContext;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.Rule;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleExitResult;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleFactories;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleFactory;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.RuleNotConfiguredException;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class RuleFactoriesTest {
+  private static final String P = "readonlyrest.access_control_rules.";
+
+  /**
+   * Plugged in through src/test/resources/META-INF/services.
+   */
+  public static class UriPrefixRuleFactory extends RuleFactory {
+    public UriPrefixRuleFactory() {
+      super("uri_prefix");
+    }
+
+    @Override
+    public Rule create(Settings s, BlockContext context) throws RuleNotConfiguredException {
+      return new UriPrefixRule(s);
+    }
+  }
+
+  public static class UriPrefixRule extends Rule {
+    private final String prefix;
+
+    UriPrefixRule(Settings s) throws RuleNotConfiguredException {
+      super(s);
+      prefix = s.get(KEY);
+      if (prefix == null || prefix.isEmpty()) {
+        throw new RuleNotConfiguredException();
+      }
+    }
+
+    @Override
+    public RuleExitResult match(RequestContext rc) {
+      return rc.getRequest().uri().startsWith(prefix) ? MATCH : NO_MATCH;
+    }
+  }
+
+  @Test
+  public final void testPluggedInRulesComeAfterTheBuiltInOnes() {
+    List<String> keys = new ArrayList<>();
+    for (RuleFactory f : RuleFactories.getInstance().getAll()) {
+      keys.add(f.getKey());
+    }
+    assertEquals(12, keys.size());
+    assertEquals("hosts", keys.get(0));
+    assertEquals("uri_prefix", keys.get(11));
+  }
+
+  @Test
+  public final void testBlocksBuildTheRulesOfTheirKeysOnly() throws Throwable {
+    ACL acl = new ACL(Settings.builder()
+        .put(P + "0.name", "public").put(P + "0.type", "allow")
+        .put(P + "0.uri_prefix", "/public/").putArray(P + "0.methods", "GET")
+        .put(P + "1.name", "nothing").put(P + "1.type", "allow").putArray(P + "1.methods")
+        .build());
+
+    assertEquals(2, acl.getBlocks().get(0).getRules().size());
+    assertEquals(0, acl.getBlocks().get(1).getRules().size());
+    assertTrue(acl.check(ACLTest.mockReq("/public/_search", "1.1.1.1", "", "", 0, Method.GET, null, null, null)).isMatch());
+    assertEquals("nothing",
+        acl.check(ACLTest.mockReq("/private/_search", "1.1.1.1", "", "", 0, Method.GET, null, null, null)).getBlock().getName());
+    assertTrue(acl.getBuildNanos().containsKey("blocks"));
+  }
+}
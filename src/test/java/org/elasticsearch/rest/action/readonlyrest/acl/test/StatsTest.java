@@ -0,0 +1,120 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.DummyTransportAddress;
+import org.elasticsearch.plugin.readonlyrest.BodyLengthLimitStats;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.BlockStats;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditLog;
+import org.elasticsearch.plugin.readonlyrest.audit.AuditSink;
+import org.elasticsearch.plugin.readonlyrest.stats.HistogramSnapshot;
+import org.elasticsearch.plugin.readonlyrest.stats.LatencyHistogram;
+import org.elasticsearch.plugin.readonlyrest.stats.NodeStats;
+import org.elasticsearch.plugin.readonlyrest.stats.PrometheusFormat;
+import org.elasticsearch.plugin.readonlyrest.stats.ReadonlyRestStats;
+import org.elasticsearch.plugin.readonlyrest.stats.ReadonlyRestStatsResponse;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StatsTest {
+
+  @Test
+  public final void testHistogram() {
+    LatencyHistogram h = new LatencyHistogram();
+    for (int i = 0; i < 90; i++) {
+      h.record(100);
+    }
+    for (int i = 0; i < 10; i++) {
+      h.record(1000);
+    }
+    h.record(10L * 1000 * 1000 * 1000);
+    HistogramSnapshot s = h.snapshot();
+    assertEquals(101, s.getCount());
+    assertEquals(128, s.percentileNanos(0.5));
+    assertEquals(1024, s.percentileNanos(0.99));
+    assertEquals(Long.MAX_VALUE, s.percentileNanos(1));
+    assertEquals(202, s.merge(s).getCount());
+  }
+
+  private static ReadonlyRestStats collect() throws Throwable {
+    ACL acl = ACLTest.mkACL("/src/test/test_rules.yml");
+    acl.check(ACLTest.mockReq("/", "1.1.1.1", "1234567890", "", 0, Method.GET, null, null, null));
+    acl.check(ACLTest.mockReq("/", "9.9.9.9", "", "", 0, Method.DELETE, null, null, null));
+    return ReadonlyRestStats.collect(acl, new BodyLengthLimitStats(),
+        new AuditLog(Collections.<AuditSink>emptyList(), 1, 1, 0));
+  }
+
+  @Test
+  public final void testCollectSerializeAndMerge() throws Throwable {
+    ReadonlyRestStats stats = collect();
+    assertEquals(2, stats.getChecks());
+    assertEquals(2, stats.getLatency().getCount());
+    BlockStats first = stats.getBlocks().get(0);
+    assertEquals(2, first.getChecks());
+
+    BytesStreamOutput out = new BytesStreamOutput();
+    stats.writeTo(out);
+    StreamInput in = StreamInput.wrap(out.bytes());
+    ReadonlyRestStats read = ReadonlyRestStats.readReadonlyRestStats(in);
+    assertEquals(stats.getChecks(), read.getChecks());
+    assertEquals(stats.getBlocks().size(), read.getBlocks().size());
+    assertEquals(first.getRules().size(), read.getBlocks().get(0).getRules().size());
+    assertEquals(first.getLatency().getCount(), read.getBlocks().get(0).getLatency().getCount());
+
+    ReadonlyRestStats total = stats.merge(read);
+    assertEquals(4, total.getChecks());
+    assertEquals(4, total.getBlocks().get(0).getChecks());
+    assertEquals(stats.getBlocks().size(), total.getBlocks().size());
+  }
+
+  @Test
+  public final void testPrometheus() throws Throwable {
+    DiscoveryNode node = new DiscoveryNode("node \"1\"", "n1", DummyTransportAddress.INSTANCE,
+        Collections.<String, String>emptyMap(), Version.CURRENT);
+    ReadonlyRestStatsResponse response = new ReadonlyRestStatsResponse(new ClusterName("c"),
+        new NodeStats[]{new NodeStats(node, collect())});
+    String text = PrometheusFormat.format(response);
+    assertTrue(text.contains("# TYPE readonlyrest_acl_checks_total counter\n"));
+    assertTrue(text.contains("readonlyrest_acl_checks_total{node=\"node \\\"1\\\"\"} 2\n"));
+    assertTrue(text.contains("readonlyrest_acl_latency_seconds_count{node=\"node \\\"1\\\"\"} 2\n"));
+    assertTrue(text.contains("le=\"+Inf\"} 2\n"));
+    assertTrue(text.contains("readonlyrest_rule_evaluations_total{node=\"node \\\"1\\\"\",block=\""));
+  }
+
+  @Test
+  public final void testBlocksWithTheSameName() throws Throwable {
+    ACL acl = new ACL(Settings.builder().loadFromSource(
+        "readonlyrest:\n" +
+        "  access_control_rules:\n" +
+        "  - name: same\n" +
+        "    type: allow\n" +
+        "    methods: [GET]\n" +
+        "  - name: same\n" +
+        "    type: allow\n" +
+        "    methods: [POST]\n").build());
+    acl.check(ACLTest.mockReq("/", "1.1.1.1", "", "", 0, Method.POST, null, null, null));
+    ReadonlyRestStats stats = ReadonlyRestStats.collect(acl, new BodyLengthLimitStats(),
+        new AuditLog(Collections.<AuditSink>emptyList(), 1, 1, 0));
+    DiscoveryNode node = new DiscoveryNode("n", "n1", DummyTransportAddress.INSTANCE,
+        Collections.<String, String>emptyMap(), Version.CURRENT);
+    String text = PrometheusFormat.format(new ReadonlyRestStatsResponse(new ClusterName("c"),
+        new NodeStats[]{new NodeStats(node, stats)}));
+    assertTrue(text.contains("readonlyrest_block_matches_total{node=\"n\",block=\"same\",index=\"0\"} 0\n"));
+    assertTrue(text.contains("readonlyrest_block_matches_total{node=\"n\",block=\"same\",index=\"1\"} 1\n"));
+
+    ReadonlyRestStats total = stats.merge(stats);
+    assertEquals(2, total.getBlocks().size());
+    assertEquals(2, total.getBlocks().get(1).getMatches());
+  }
+}
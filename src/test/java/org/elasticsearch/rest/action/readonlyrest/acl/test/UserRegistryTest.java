@@ -0,0 +1,48 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.AuthCache;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestCredentials;
+import org.elasticsearch.plugin.readonlyrest.acl.blocks.rules.UserRegistry;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UserRegistryTest {
+
+  private static RequestCredentials token(String userAndPass) {
+    return RequestCredentials.parse("Basic " + Base64.encodeBytes(userAndPass.getBytes(Charsets.UTF_8)));
+  }
+
+  @Test
+  public final void testLookupAndGroups() {
+    Settings alice = Settings.builder().put("username", "alice").put("auth_key", "alice:p455").putArray("groups", "a", "b").build();
+    Settings alice2 = Settings.builder().put("username", "alice").put("auth_key", "alice:p455").putArray("groups", "c").build();
+    Settings bob = Settings.builder().put("username", "bob")
+        .put("auth_key_sha1", Hashing.sha1().hashString("bob:p455", Charsets.UTF_8).toString()).putArray("groups", "b").build();
+    Settings noGroups = Settings.builder().put("username", "carol").put("auth_key", "carol:p455").build();
+    UserRegistry r = new UserRegistry(Arrays.asList(alice, alice2, bob, noGroups), new AuthCache(10, 60000));
+
+    assertEquals(2, r.getUsersCount());
+    assertEquals(3, r.getGroupsCount());
+
+    BitSet onlyC = r.groupsMask(Arrays.asList("c", "unknown"));
+    BitSet onlyB = r.groupsMask(Arrays.asList("b"));
+    assertTrue(r.groupsOf(token("alice:p455")).intersects(onlyC));
+    assertTrue(r.groupsOf(token("alice:p455")).intersects(onlyB));
+    assertTrue(r.groupsOf(token("bob:p455")).intersects(onlyB));
+    assertFalse(r.groupsOf(token("bob:p455")).intersects(onlyC));
+    assertNull(r.groupsOf(token("bob:wrong")));
+    assertNull(r.groupsOf(token("carol:p455")));
+    assertTrue(r.groupsMask(Arrays.asList("unknown")).isEmpty());
+  }
+}
@@ -0,0 +1,82 @@
+package org.elasticsearch.rest.action.readonlyrest.acl.test;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.Base64;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.plugin.readonlyrest.acl.ACL;
+import org.elasticsearch.plugin.readonlyrest.acl.RequestContext;
+import org.elasticsearch.plugin.readonlyrest.acl.RuleConfigurationError;
+import org.elasticsearch.rest.RestRequest.Method;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class UserVariablesTest {
+  private static final String P = "readonlyrest.access_control_rules.";
+  private static final String U = "readonlyrest.users.";
+
+  private static String basic(String userAndPass) {
+    return "Basic " + Base64.encodeBytes(userAndPass.getBytes(Charsets.UTF_8));
+  }
+
+  private static Settings.Builder tenants() {
+    Settings.Builder b = Settings.builder()
+        .put(P + "0.name", "tenants").put(P + "0.type", "allow")
+        .putArray(P + "0.groups", "tenants")
+        .putArray(P + "0.indices", "@{user}_*", "shared");
+    String[] users = {"alice", "bob", "*"};
+    for (int i = 0; i < users.length; i++) {
+      b.put(U + i + ".username", users[i]).put(U + i + ".auth_key", users[i] + ":pwd").putArray(U + i + ".groups", "tenants");
+    }
+    return b;
+  }
+
+  private static RequestContext read(String auth, String... indices) throws Throwable {
+    return ACLTest.mockReq("/_search", "1.1.1.1", "", auth, 0, Method.GET, null, indices, "indices:data/read/get");
+  }
+
+  @Test
+  public final void testOneBlockServesEveryUser() throws Throwable {
+    ACL acl = new ACL(tenants().build());
+
+    assertTrue(acl.check(read(basic("alice:pwd"), "alice_logs")).isMatch());
+    assertTrue(acl.check(read(basic("alice:pwd"), "shared")).isMatch());
+    assertTrue(acl.check(read(basic("bob:pwd"), "bob_logs", "shared")).isMatch());
+    assertFalse(acl.check(read(basic("alice:pwd"), "bob_logs")).isMatch());
+    assertFalse(acl.check(read(basic("bob:pwd"), "alice_logs")).isMatch());
+    // The patterns are not resolved for unauthenticated users
+    assertFalse(acl.check(read(basic("alice:wrong"), "alice_logs")).isMatch());
+    assertFalse(acl.check(read("", "alice_logs")).isMatch());
+    // Cached: same decision the second time
+    assertTrue(acl.check(read(basic("alice:pwd"), "alice_logs")).isMatch());
+  }
+
+  @Test
+  public final void testUserNamesCannotWidenThePatterns() throws Throwable {
+    ACL acl = new ACL(tenants().build());
+    assertFalse(acl.check(read(basic("*:pwd"), "alice_logs")).isMatch());
+  }
+
+  @Test
+  public final void testVariablesNeedAnAuthenticatingBlock() {
+    Settings s = Settings.builder()
+        .put(P + "0.name", "anyone").put(P + "0.type", "allow")
+        .putArray(P + "0.hosts", "1.1.1.1")
+        .putArray(P + "0.indices", "@{user}_*")
+        .build();
+    try {
+      new ACL(s);
+      fail("an ACL resolving @{user} without authentication was built");
+    } catch (RuleConfigurationError e) {
+      assertTrue(e.getMessage().contains("anyone"));
+    }
+
+    // Literal patterns are fine
+    ACL acl = new ACL(Settings.builder()
+        .put(P + "0.name", "anyone").put(P + "0.type", "allow").putArray(P + "0.indices", "logs_*").build());
+    assertEquals(1, acl.getBlocks().size());
+  }
+}